@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AgendaImporter} reading a conference day sized agenda file.
+ *
+ * @author Jens Deters
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+@State(Scope.Benchmark)
+public class AgendaImportBenchmark {
+
+    @Param({"100000"})
+    private int entries;
+
+    private Path directory;
+    private Path csvFile;
+    private Path jsonFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("agenda-benchmark");
+        StringBuilder csv = new StringBuilder("title,duration\n");
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < entries; i++) {
+            String duration = (1 + i % 59) + ":" + (10 + i % 50);
+            csv.append("\"Session ").append(i).append(", Room ").append(i % 12).append("\",").append(duration).append('\n');
+            json.append(i == 0 ? "" : ",\n").append("{\"title\": \"Session ").append(i).append("\", \"duration\": \"").append(duration).append("\"}");
+        }
+        json.append("\n]\n");
+        csvFile = Files.write(directory.resolve("agenda.csv"), csv.toString().getBytes(StandardCharsets.UTF_8));
+        jsonFile = Files.write(directory.resolve("agenda.json"), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(csvFile);
+        Files.delete(jsonFile);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public AgendaSchedule csv() throws IOException {
+        return AgendaImporter.load(csvFile).getSchedule();
+    }
+
+    @Benchmark
+    public AgendaSchedule json() throws IOException {
+        return AgendaImporter.load(jsonFile).getSchedule();
+    }
+}
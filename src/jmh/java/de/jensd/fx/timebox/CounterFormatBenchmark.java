@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.concurrent.TimeUnit;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The counter text listener of {@link TimerView}: String.format on the
+ * minute and second properties against the {@link CounterFormat} table.
+ *
+ * @author Jens Deters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CounterFormatBenchmark {
+
+    private IntegerProperty minutes;
+    private IntegerProperty seconds;
+    private BooleanProperty overdueRunning;
+    private long millisLeft;
+    private int lastCounterIndex;
+
+    @Setup
+    public void setUp() {
+        minutes = new SimpleIntegerProperty(29);
+        seconds = new SimpleIntegerProperty(59);
+        overdueRunning = new SimpleBooleanProperty(false);
+        millisLeft = TimeUnit.MINUTES.toMillis(30);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        String counterString = String.format("%02d:%02d",
+                minutes.get(),
+                seconds.get());
+        if (overdueRunning.get()) {
+            counterString = String.format("%02d:%02d", (minutes.get() - 59) * -1,
+                    (seconds.get() - 59) * -1);
+        }
+        return counterString;
+    }
+
+    @Benchmark
+    public String counterTable() {
+        // one tick per pulse, the text only changes every 60th call
+        millisLeft -= 16;
+        if (millisLeft < -TimeUnit.MINUTES.toMillis(30)) {
+            millisLeft = TimeUnit.MINUTES.toMillis(30);
+        }
+        int counterIndex = CounterFormat.index(millisLeft);
+        if (counterIndex != lastCounterIndex) {
+            lastCounterIndex = counterIndex;
+            return CounterFormat.text(counterIndex);
+        }
+        return null;
+    }
+}
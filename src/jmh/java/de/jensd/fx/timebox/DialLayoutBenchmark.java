@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.concurrent.TimeUnit;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Bounds;
+import javafx.scene.Group;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.shape.Arc;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.transform.Rotate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Relayout of the node dial per resize step: the bindings that used to fan
+ * out from the root size to the arcs and the 60 ticks, against the single
+ * layout pass of {@link DialPane}.
+ * <p>
+ * Nothing is rendered, the software pipeline is only selected so the shapes
+ * can be created on machines without OpenGL. The counter and the app info
+ * are regions of the size of their texts: measuring text needs the native
+ * font libraries, and the layout only looks at the bounds.
+ *
+ * @author Jens Deters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dprism.order=sw")
+@State(Scope.Thread)
+public class DialLayoutBenchmark {
+
+    @Param({"500", "1080", "2160"})
+    private int size;
+
+    private DoubleProperty width;
+    private DoubleProperty height;
+    private Group clockPane;
+    private DialPane dialPane;
+    private boolean grow;
+
+    @Setup
+    public void setUp() {
+        width = new SimpleDoubleProperty(size);
+        height = new SimpleDoubleProperty(size);
+        DoubleProperty scaleProperty = new SimpleDoubleProperty();
+        DoubleProperty centerXProperty = new SimpleDoubleProperty();
+        DoubleProperty centerYProperty = new SimpleDoubleProperty();
+        scaleProperty.bind(height.divide(2.2));
+        centerXProperty.bind(width.divide(2));
+        centerYProperty.bind(height.divide(2));
+        Arc timeLeftSliceArc = new Arc();
+        timeLeftSliceArc.setStartAngle(90.0);
+        timeLeftSliceArc.setLength(120.0);
+        timeLeftSliceArc.setType(ArcType.ROUND);
+        Arc timeLeftBackgroundSliceArc = new Arc();
+        timeLeftBackgroundSliceArc.setStartAngle(90.0);
+        timeLeftBackgroundSliceArc.setLength(180.0);
+        timeLeftBackgroundSliceArc.setType(ArcType.ROUND);
+        Circle backgroundSliceArc = new Circle();
+        Circle centerSliceArc = new Circle(75.0);
+        for (Arc arc : new Arc[]{timeLeftSliceArc, timeLeftBackgroundSliceArc}) {
+            arc.centerXProperty().bind(centerXProperty);
+            arc.centerYProperty().bind(centerYProperty);
+            arc.radiusXProperty().bind(scaleProperty);
+            arc.radiusYProperty().bind(scaleProperty);
+        }
+        backgroundSliceArc.centerXProperty().bind(centerXProperty);
+        backgroundSliceArc.centerYProperty().bind(centerYProperty);
+        backgroundSliceArc.radiusProperty().bind(scaleProperty);
+        centerSliceArc.centerXProperty().bind(centerXProperty);
+        centerSliceArc.centerYProperty().bind(centerYProperty);
+        Group tickGroup = new Group();
+        for (int n = 0; n < 60; n++) {
+            Rotate rotate = new Rotate(360 / 60 * n);
+            rotate.pivotXProperty().bind(centerXProperty);
+            rotate.pivotYProperty().bind(centerYProperty);
+            Line line = new Line();
+            line.getTransforms().add(rotate);
+            double endYfactor = (n % 5 == 0 ? 0.25 : 0.2);
+            if (n % 15 == 0) {
+                endYfactor = 0.3;
+            }
+            line.strokeWidthProperty().bind(scaleProperty.multiply(0.03));
+            line.startXProperty().bind(centerXProperty);
+            line.startYProperty().bind(scaleProperty.multiply(0.2));
+            line.endXProperty().bind(centerXProperty);
+            line.endYProperty().bind(scaleProperty.multiply(endYfactor));
+            tickGroup.getChildren().add(line);
+        }
+        clockPane = new Group(backgroundSliceArc, timeLeftBackgroundSliceArc, timeLeftSliceArc, tickGroup, centerSliceArc);
+
+        Arc dialPaneSliceArc = new Arc();
+        dialPaneSliceArc.setStartAngle(90.0);
+        dialPaneSliceArc.setLength(120.0);
+        dialPaneSliceArc.setType(ArcType.ROUND);
+        // controls need a running toolkit, regions of the size of the buttons will do
+        HBox buttonsBox = new HBox();
+        for (int i = 0; i < 3; i++) {
+            Region button = new Region();
+            button.setPrefSize(34, 36);
+            buttonsBox.getChildren().add(button);
+        }
+        dialPane = new DialPane(new SimpleDoubleProperty(30), dialPaneSliceArc, sized(122, 47),
+                buttonsBox, new VBox(sized(76, 19), sized(30, 13)), false);
+        dialPane.resize(size, size);
+        dialPane.layout();
+    }
+
+    private static Region sized(double width, double height) {
+        Region region = new Region();
+        region.setPrefSize(width, height);
+        return region;
+    }
+
+    @Benchmark
+    public Bounds nodeDialResize() {
+        grow = !grow;
+        double delta = grow ? 1 : -1;
+        width.set(width.get() + delta);
+        height.set(height.get() + delta);
+        return clockPane.getBoundsInParent();
+    }
+
+    @Benchmark
+    public Bounds dialPaneResize() {
+        grow = !grow;
+        double delta = grow ? 1 : -1;
+        dialPane.resize(dialPane.getWidth() + delta, dialPane.getHeight() + delta);
+        dialPane.layout();
+        return dialPane.getBoundsInParent();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.concurrent.TimeUnit;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.LongProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleLongProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per tick work of the timer: the 1.x style Calendar countdown against the
+ * deadline based {@link TimerClockWork}.
+ *
+ * @author Jens Deters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TimerTickBenchmark {
+
+    private Calendar calendar;
+    private LongProperty milliSecondsLeft;
+    private IntegerProperty milliSeconds;
+    private IntegerProperty seconds;
+    private IntegerProperty minutes;
+    private TimerClockWork timerClockWork;
+    private TimerCore timerCore;
+
+    @Setup
+    public void setUp() {
+        calendar = new GregorianCalendar();
+        calendar.setTimeInMillis(TimeUnit.MINUTES.toMillis(60));
+        milliSecondsLeft = new SimpleLongProperty();
+        milliSeconds = new SimpleIntegerProperty();
+        seconds = new SimpleIntegerProperty();
+        minutes = new SimpleIntegerProperty();
+        // the wheel is never started, it only keeps the clock work from requesting pulses
+        timerClockWork = new TimerClockWork(new TimerCore(), new TimerWheel(Runnable::run));
+        timerClockWork.setStartTimeMinutes(60);
+        timerClockWork.start();
+        timerCore = new TimerCore();
+        timerCore.setDurationMillis(TimeUnit.MINUTES.toMillis(60));
+        timerCore.start();
+    }
+
+    @Benchmark
+    public int calendarTick() {
+        calendar.setTimeInMillis(calendar.getTimeInMillis() - 1);
+        milliSecondsLeft.set(calendar.getTimeInMillis());
+        milliSeconds.set(calendar.get(Calendar.MILLISECOND));
+        seconds.set(calendar.get(Calendar.SECOND));
+        minutes.set(calendar.get(Calendar.MINUTE));
+        return minutes.get();
+    }
+
+    @Benchmark
+    public long clockWorkTick() {
+        timerClockWork.tick();
+        return timerClockWork.milliSecondsLeftProperty().get();
+    }
+
+    @Benchmark
+    public long coreUpdate() {
+        return timerCore.update();
+    }
+}
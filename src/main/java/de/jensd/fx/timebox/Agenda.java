@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.List;
+
+/**
+ * Runs a sequence of timeboxes back to back on a {@link TimerCore}.
+ * <p>
+ * The deadline of every item is computed from the start of the agenda, and
+ * the next item is handed to the core as its {@link TimerCore.Successor}, so
+ * it starts on the very nanosecond the previous one runs out, no matter when
+ * the clock work notices. Pauses move all remaining deadlines.
+ * <p>
+ * With carry-over the agenda keeps its schedule instead: every item but the
+ * last runs overdue until {@link #next()} is called, also with overdue
+ * switched off, and the time it took longer is
+ * taken from the next item. Ending an item early gives the time saved to the
+ * next one. Without carry-over every item gets its full length, ending one
+ * early moves the rest of the schedule.
+ *
+ * @author Jens Deters
+ */
+public class Agenda implements TimerCore.Successor, TimerListener {
+
+    private final AgendaSchedule schedule;
+    private final boolean carryOver;
+    private TimerCore core;
+    private long base;
+    private int current = -1;
+
+    public Agenda(List<AgendaItem> items, boolean carryOver) {
+        this(AgendaSchedule.of(items), carryOver);
+    }
+
+    public Agenda(AgendaSchedule schedule, boolean carryOver) {
+        this.schedule = schedule;
+        this.carryOver = carryOver;
+    }
+
+    public void attach(TimerCore core) {
+        this.core = core;
+        core.setSuccessor(this);
+        core.addListener(this);
+    }
+
+    public AgendaSchedule getSchedule() {
+        return schedule;
+    }
+
+    public boolean isCarryOver() {
+        return carryOver;
+    }
+
+    /**
+     * @return the index of the running item, -1 if the agenda is not running
+     */
+    public int getCurrentIndex() {
+        return current;
+    }
+
+    /**
+     * @return the running item, null if the agenda is not running
+     */
+    public AgendaItem getCurrent() {
+        return current < 0 ? null : schedule.getItem(current);
+    }
+
+    /**
+     * @return up to {@code count} items following the running one, the first
+     * items if the agenda is not running
+     */
+    public List<AgendaItem> getUpcoming(int count) {
+        return schedule.window(current + 1, count);
+    }
+
+    /**
+     * @return the time of the core's {@link TimeSource} the item runs out at,
+     * valid while the agenda runs
+     */
+    public long getDeadline(int index) {
+        return base + schedule.getEndOffset(index);
+    }
+
+    /**
+     * Starts the first item now.
+     */
+    public void start() {
+        if (schedule.isEmpty()) {
+            return;
+        }
+        base = core.getTimeSource().nanoTime();
+        current = 0;
+        core.startUntil(getDeadline(0), schedule.getDurationMillis(0));
+    }
+
+    /**
+     * Ends the running item and starts the next one.
+     */
+    public void next() {
+        if (current < 0 || current + 1 >= schedule.size()) {
+            return;
+        }
+        long now = core.getTimeSource().nanoTime();
+        if (!carryOver) {
+            // the next item gets its full length from now on
+            base += now - getDeadline(current);
+        }
+        current++;
+        core.startUntil(getDeadline(current), schedule.getDurationMillis(current));
+    }
+
+    @Override
+    public TimerSnapshot next(TimerSnapshot expired) {
+        if (current < 0 || current + 1 >= schedule.size()) {
+            return null;
+        }
+        if (carryOver) {
+            // overdue whatever the overdue setting, a finished item would leave nothing to call next() on
+            return expired.expired(true);
+        }
+        current++;
+        return new TimerSnapshot(TimerCore.State.NORMAL, false, schedule.getDurationMillis(current), getDeadline(current), 0);
+    }
+
+    @Override
+    public void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+        if (current < 0) {
+            return;
+        }
+        switch (newSnapshot.getState()) {
+            case IDLE:
+                current = -1;
+                break;
+            case NORMAL:
+            case OVERDUE:
+                if (oldSnapshot.isPaused()) {
+                    // the pause moves the rest of the agenda
+                    base += newSnapshot.getDeadline() - oldSnapshot.getDeadline();
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,532 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads agenda files into an {@link AgendaSchedule}.
+ * <p>
+ * The files are streamed, every entry goes into the schedule as soon as it
+ * is read and no document is built. Invalid entries are skipped and reported
+ * with their line number. Three formats are understood, chosen by the file
+ * extension:
+ * <ul>
+ * <li>.csv: {@code title,duration} per line, optionally a header naming the
+ * columns "title" and "duration" in any order, quoted fields as in RFC
+ * 4180</li>
+ * <li>.json: an array of {@code {"title": "...", "duration": "mm:ss"}}
+ * objects, or an object holding that array as "items"; the duration may be a
+ * number of minutes, other members are ignored</li>
+ * <li>anything else: {@code <minutes | mm:ss> <title>} per line, # starts a
+ * comment</li>
+ * </ul>
+ *
+ * @author Jens Deters
+ */
+public final class AgendaImporter {
+
+    /**
+     * Only this many errors are kept, all are counted.
+     */
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * A day, anything longer is a typo. The counter shows h:mm:ss past 99:59,
+     * the broadcast and the journal keep lengths as int milliseconds.
+     */
+    private static final long MAX_DURATION_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private final AgendaSchedule schedule = new AgendaSchedule();
+    private final List<String> errors = new ArrayList<>();
+    private int errorCount;
+
+    private AgendaImporter() {
+    }
+
+    public static Result load(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (name.endsWith(".csv")) {
+                return readCsv(reader);
+            } else if (name.endsWith(".json")) {
+                return readJson(reader);
+            } else {
+                return readPlain(reader);
+            }
+        }
+    }
+
+    public static Result readPlain(Reader in) throws IOException {
+        AgendaImporter importer = new AgendaImporter();
+        BufferedReader reader = buffered(in);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            try {
+                AgendaItem item = AgendaItem.parse(line);
+                if (item != null) {
+                    importer.add(lineNumber, item.getTitle(), item.getDurationMillis());
+                }
+            } catch (IllegalArgumentException ex) {
+                importer.error(lineNumber, ex.getMessage());
+            }
+        }
+        return importer.result();
+    }
+
+    public static Result readCsv(Reader in) throws IOException {
+        AgendaImporter importer = new AgendaImporter();
+        BufferedReader reader = buffered(in);
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int titleColumn = 0;
+        int durationColumn = 1;
+        boolean firstRecord = true;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int recordLine = lineNumber;
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // a quoted field goes on in the next line
+                    line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                importer.error(recordLine, "unterminated quoted field");
+                break;
+            }
+            fields.add(field.toString().trim());
+            if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                continue;
+            }
+            if (firstRecord) {
+                firstRecord = false;
+                int headerTitle = indexOfIgnoreCase(fields, "title");
+                int headerDuration = indexOfIgnoreCase(fields, "duration");
+                if (headerTitle >= 0 || headerDuration >= 0) {
+                    if (headerDuration < 0) {
+                        importer.error(recordLine, "no duration column");
+                        break;
+                    }
+                    titleColumn = headerTitle;
+                    durationColumn = headerDuration;
+                    continue;
+                }
+            }
+            if (durationColumn >= fields.size()) {
+                importer.error(recordLine, "missing duration");
+                continue;
+            }
+            String title = titleColumn >= 0 && titleColumn < fields.size() ? fields.get(titleColumn) : "";
+            try {
+                importer.add(recordLine, title, AgendaItem.parseLength(fields.get(durationColumn)));
+            } catch (IllegalArgumentException ex) {
+                importer.error(recordLine, ex.getMessage());
+            }
+        }
+        return importer.result();
+    }
+
+    public static Result readJson(Reader in) throws IOException {
+        AgendaImporter importer = new AgendaImporter();
+        JsonTokenizer json = new JsonTokenizer(in);
+        try {
+            int c = json.peek();
+            if (c == '[') {
+                importer.readJsonItems(json);
+            } else if (c == '{') {
+                json.expect('{');
+                boolean found = false;
+                if (json.peek() != '}') {
+                    do {
+                        String name = json.readString();
+                        json.expect(':');
+                        if ("items".equals(name) && json.peek() == '[') {
+                            importer.readJsonItems(json);
+                            found = true;
+                        } else {
+                            json.skipValue();
+                        }
+                    } while (json.nextIn('}'));
+                } else {
+                    json.expect('}');
+                }
+                if (!found) {
+                    importer.error(json.line, "no \"items\" array");
+                }
+            } else {
+                throw json.syntaxError("expected [ or {");
+            }
+        } catch (JsonSyntaxException ex) {
+            importer.error(ex.line, ex.getMessage());
+        }
+        return importer.result();
+    }
+
+    private void readJsonItems(JsonTokenizer json) throws IOException, JsonSyntaxException {
+        json.expect('[');
+        if (json.peek() == ']') {
+            json.expect(']');
+            return;
+        }
+        do {
+            int itemLine = json.lineOfNext();
+            if (json.peek() != '{') {
+                error(itemLine, "entry is no object");
+                json.skipValue();
+                continue;
+            }
+            json.expect('{');
+            String title = "";
+            String duration = null;
+            if (json.peek() != '}') {
+                do {
+                    String name = json.readString();
+                    json.expect(':');
+                    if ("title".equals(name) && json.peek() == '"') {
+                        title = json.readString();
+                    } else if ("duration".equals(name)) {
+                        duration = json.peek() == '"' ? json.readString() : json.readLiteral();
+                    } else {
+                        json.skipValue();
+                    }
+                } while (json.nextIn('}'));
+            } else {
+                json.expect('}');
+            }
+            if (duration == null) {
+                error(itemLine, "missing duration");
+                continue;
+            }
+            try {
+                add(itemLine, title, AgendaItem.parseLength(duration));
+            } catch (IllegalArgumentException ex) {
+                error(itemLine, ex.getMessage());
+            }
+        } while (json.nextIn(']'));
+    }
+
+    private void add(int line, String title, long durationMillis) {
+        if (durationMillis <= 0 || durationMillis > MAX_DURATION_MILLIS) {
+            error(line, "length must be 0:01 to 1440:00");
+            return;
+        }
+        schedule.add(title, durationMillis);
+    }
+
+    private void error(int line, String message) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("line " + line + ": " + message);
+        }
+    }
+
+    private Result result() {
+        return new Result(schedule, Collections.unmodifiableList(errors), errorCount);
+    }
+
+    private static int indexOfIgnoreCase(List<String> fields, String name) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static BufferedReader buffered(Reader in) {
+        return in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+    }
+
+    /**
+     * What an import read.
+     */
+    public static final class Result {
+
+        private final AgendaSchedule schedule;
+        private final List<String> errors;
+        private final int errorCount;
+
+        Result(AgendaSchedule schedule, List<String> errors, int errorCount) {
+            this.schedule = schedule;
+            this.errors = errors;
+            this.errorCount = errorCount;
+        }
+
+        /**
+         * @return the valid entries
+         */
+        public AgendaSchedule getSchedule() {
+            return schedule;
+        }
+
+        /**
+         * @return the first {@link #MAX_REPORTED_ERRORS} errors as
+         * "line n: message"
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public int getErrorCount() {
+            return errorCount;
+        }
+    }
+
+    private static final class JsonSyntaxException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int line;
+
+        JsonSyntaxException(int line, String message) {
+            super(message);
+            this.line = line;
+        }
+    }
+
+    /**
+     * Just enough of a pull parser for agenda files.
+     */
+    private static final class JsonTokenizer {
+
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder text = new StringBuilder();
+        private int position;
+        private int limit;
+        private int line = 1;
+
+        JsonTokenizer(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next char that is no whitespace, not consumed, -1 at
+         * the end
+         */
+        int peek() throws IOException {
+            while (true) {
+                if (position == limit && !fill()) {
+                    return -1;
+                }
+                char c = buffer[position];
+                if (c == '\n') {
+                    line++;
+                } else if (c != ' ' && c != '\t' && c != '\r') {
+                    return c;
+                }
+                position++;
+            }
+        }
+
+        int lineOfNext() throws IOException {
+            peek();
+            return line;
+        }
+
+        void expect(char expected) throws IOException, JsonSyntaxException {
+            if (peek() != expected) {
+                throw syntaxError("expected " + expected);
+            }
+            position++;
+        }
+
+        /**
+         * Consumes the comma before the next member or element.
+         *
+         * @return false if the closing char was consumed instead
+         */
+        boolean nextIn(char close) throws IOException, JsonSyntaxException {
+            int c = peek();
+            position++;
+            if (c == ',') {
+                return true;
+            }
+            if (c == close) {
+                return false;
+            }
+            throw syntaxError("expected , or " + close);
+        }
+
+        String readString() throws IOException, JsonSyntaxException {
+            expect('"');
+            text.setLength(0);
+            while (true) {
+                int c = read();
+                if (c == '"') {
+                    return text.toString();
+                }
+                if (c == '\\') {
+                    int escaped = read();
+                    switch (escaped) {
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                int digit = Character.digit(read(), 16);
+                                if (digit < 0) {
+                                    throw syntaxError("invalid \\u escape");
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char) escaped);
+                            break;
+                        default:
+                            throw syntaxError("invalid escape");
+                    }
+                } else if (c < 0 || c == '\n') {
+                    throw syntaxError("unterminated string");
+                } else {
+                    text.append((char) c);
+                }
+            }
+        }
+
+        /**
+         * @return a number, true, false or null as written
+         */
+        String readLiteral() throws IOException, JsonSyntaxException {
+            peek();
+            text.setLength(0);
+            while (position < limit || fill()) {
+                char c = buffer[position];
+                if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                    break;
+                }
+                text.append(c);
+                position++;
+            }
+            if (text.length() == 0) {
+                throw syntaxError("expected a value");
+            }
+            return text.toString();
+        }
+
+        void skipValue() throws IOException, JsonSyntaxException {
+            int c = peek();
+            if (c == '"') {
+                readString();
+            } else if (c == '{') {
+                expect('{');
+                if (peek() == '}') {
+                    expect('}');
+                    return;
+                }
+                do {
+                    readString();
+                    expect(':');
+                    skipValue();
+                } while (nextIn('}'));
+            } else if (c == '[') {
+                expect('[');
+                if (peek() == ']') {
+                    expect(']');
+                    return;
+                }
+                do {
+                    skipValue();
+                } while (nextIn(']'));
+            } else {
+                readLiteral();
+            }
+        }
+
+        JsonSyntaxException syntaxError(String message) {
+            return new JsonSyntaxException(line, message);
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+}
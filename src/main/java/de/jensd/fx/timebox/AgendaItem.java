@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One timebox of an {@link Agenda}.
+ *
+ * @author Jens Deters
+ */
+public final class AgendaItem {
+
+    private final String title;
+    private final long durationMillis;
+
+    public AgendaItem(String title, long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMillis);
+        }
+        this.title = title;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Parses a line of a plain agenda file, {@code <minutes | mm:ss> <title>}.
+     *
+     * @return the item, null for an empty line or a comment starting with #
+     * @throws IllegalArgumentException if the line is no valid item
+     */
+    public static AgendaItem parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        int space = trimmed.indexOf(' ');
+        String length = space < 0 ? trimmed : trimmed.substring(0, space);
+        String title = space < 0 ? "" : trimmed.substring(space + 1).trim();
+        return new AgendaItem(title, parseLength(length));
+    }
+
+    /**
+     * @param length minutes or mm:ss
+     * @return the milliseconds
+     * @throws IllegalArgumentException if the length is invalid
+     */
+    public static long parseLength(String length) {
+        try {
+            int colon = length.indexOf(':');
+            if (colon < 0) {
+                return TimeUnit.MINUTES.toMillis(Integer.parseInt(length));
+            }
+            int seconds = Integer.parseInt(length.substring(colon + 1));
+            if (seconds < 0 || seconds > 59) {
+                throw new IllegalArgumentException("Invalid seconds: " + length);
+            }
+            return TimeUnit.MINUTES.toMillis(Integer.parseInt(length.substring(0, colon))) + TimeUnit.SECONDS.toMillis(seconds);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid length: " + length, ex);
+        }
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AgendaItem{" + "title=" + title + ", durationMillis=" + durationMillis + '}';
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The items of an {@link Agenda} in a compact form.
+ * <p>
+ * Thousands of items are kept in a few arrays: the end of every item as an
+ * offset from the agenda start and the titles packed into one char array.
+ * {@link AgendaItem}s are only created for the items asked for, e.g. the
+ * window shown next to the dial.
+ *
+ * @author Jens Deters
+ */
+public class AgendaSchedule {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] endOffsets = new long[INITIAL_CAPACITY];
+    private int[] titleEnds = new int[INITIAL_CAPACITY];
+    private char[] titles = new char[INITIAL_CAPACITY * 16];
+    private int size;
+    private int titlesLength;
+
+    public static AgendaSchedule of(List<AgendaItem> items) {
+        AgendaSchedule schedule = new AgendaSchedule();
+        for (AgendaItem item : items) {
+            schedule.add(item.getTitle(), item.getDurationMillis());
+        }
+        return schedule;
+    }
+
+    public void add(CharSequence title, long durationMillis) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMillis);
+        }
+        if (size == endOffsets.length) {
+            endOffsets = Arrays.copyOf(endOffsets, size * 2);
+            titleEnds = Arrays.copyOf(titleEnds, size * 2);
+        }
+        int titleLength = title.length();
+        if (titlesLength + titleLength > titles.length) {
+            titles = Arrays.copyOf(titles, Math.max(titles.length * 2, titlesLength + titleLength));
+        }
+        for (int i = 0; i < titleLength; i++) {
+            titles[titlesLength++] = title.charAt(i);
+        }
+        titleEnds[size] = titlesLength;
+        endOffsets[size] = (size == 0 ? 0 : endOffsets[size - 1]) + durationMillis * 1_000_000L;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getDurationMillis(int index) {
+        checkIndex(index);
+        return (endOffsets[index] - (index == 0 ? 0 : endOffsets[index - 1])) / 1_000_000L;
+    }
+
+    /**
+     * @return the nanoseconds from the agenda start to the end of the item
+     */
+    public long getEndOffset(int index) {
+        checkIndex(index);
+        return endOffsets[index];
+    }
+
+    public String getTitle(int index) {
+        checkIndex(index);
+        int start = index == 0 ? 0 : titleEnds[index - 1];
+        return new String(titles, start, titleEnds[index] - start);
+    }
+
+    public AgendaItem getItem(int index) {
+        return new AgendaItem(getTitle(index), getDurationMillis(index));
+    }
+
+    /**
+     * @return up to {@code count} items starting at {@code from}
+     */
+    public List<AgendaItem> window(int from, int count) {
+        int to = Math.min(size, from + count);
+        List<AgendaItem> window = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            window.add(getItem(i));
+        }
+        return window;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Plays pre-decoded sounds at a given {@link System#nanoTime()}, independent
+ * of the FX application thread.
+ * <p>
+ * Every sound is decoded to 16 bit PCM once when it is loaded. Each sound
+ * gets a small pool of voices, a voice is an opened and started
+ * {@link SourceDataLine} with its own writer thread, so starting a sound only
+ * means handing the buffer over. A dedicated scheduler thread waits for the
+ * due time of each {@link Cue} and starts it within a few milliseconds.
+ *
+ * @author Jens Deters
+ */
+public class AudioEngine {
+
+    private static final long LINE_BUFFER_MILLIS = 40;
+
+    private final Map<String, Sound> sounds = new ConcurrentHashMap<>();
+    private final Queue<Cue> submittedCues = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Cue> cues = new PriorityQueue<>((Cue c1, Cue c2) -> Long.compare(c1.deadline - c2.deadline, 0));
+    private final Thread scheduler;
+    private volatile boolean running = true;
+
+    public AudioEngine() {
+        scheduler = new Thread(this::runScheduler, "timebox-audio-scheduler");
+        scheduler.setDaemon(true);
+        scheduler.setPriority(Thread.MAX_PRIORITY);
+        scheduler.start();
+    }
+
+    /**
+     * Decodes a sound and opens its voices.
+     *
+     * @param name the name to play it by
+     * @param source any format {@link AudioSystem} can decode
+     * @param voices how many instances may play at the same time
+     * @param volume 0.0 to 1.0, applied to the samples
+     */
+    public void load(String name, URL source, int voices, double volume) throws IOException, UnsupportedAudioFileException, LineUnavailableException {
+        AudioFormat format;
+        byte[] pcm;
+        try (AudioInputStream encoded = AudioSystem.getAudioInputStream(source)) {
+            AudioFormat sourceFormat = encoded.getFormat();
+            format = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sourceFormat.getSampleRate(), 16,
+                    sourceFormat.getChannels(), sourceFormat.getChannels() * 2, sourceFormat.getSampleRate(), false);
+            try (AudioInputStream decoded = AudioSystem.getAudioInputStream(format, encoded)) {
+                pcm = readFully(decoded);
+            }
+        }
+        applyVolume(pcm, volume);
+        Sound sound = new Sound(name, format, pcm, voices);
+        Sound previous = sounds.put(name, sound);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Plays a sound as soon as possible.
+     */
+    public Cue play(String name) {
+        return schedule(name, System.nanoTime());
+    }
+
+    /**
+     * Plays a sound right away unless it has been started less than
+     * {@code minIntervalNanos} ago, e.g. the click of every step of a fast
+     * drag. The sound goes straight to one of its idle voices without a cue,
+     * nothing is allocated.
+     *
+     * @return true if the sound was started
+     */
+    public boolean playThrottled(String name, long minIntervalNanos) {
+        Sound sound = sounds.get(name);
+        return sound != null && sound.startThrottled(System.nanoTime(), minIntervalNanos);
+    }
+
+    /**
+     * Plays a sound at the given {@link System#nanoTime()}.
+     *
+     * @return the cue to cancel it, also if the sound is not loaded
+     */
+    public Cue schedule(String name, long deadline) {
+        Cue cue = new Cue(name, deadline);
+        submittedCues.add(cue);
+        LockSupport.unpark(scheduler);
+        return cue;
+    }
+
+    /**
+     * Stops all voices currently playing the sound.
+     */
+    public void stop(String name) {
+        Sound sound = sounds.get(name);
+        if (sound != null) {
+            sound.stop();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(scheduler);
+        for (Sound sound : sounds.values()) {
+            sound.close();
+        }
+        sounds.clear();
+    }
+
+    private void runScheduler() {
+        while (running) {
+            Cue cue;
+            while ((cue = submittedCues.poll()) != null) {
+                cues.add(cue);
+            }
+            Cue next = cues.peek();
+            if (next == null) {
+                LockSupport.park(this);
+            } else if (next.cancelled) {
+                cues.poll();
+            } else {
+                long wait = next.deadline - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                } else {
+                    cues.poll();
+                    Sound sound = sounds.get(next.name);
+                    if (sound != null) {
+                        sound.start();
+                    }
+                }
+            }
+        }
+    }
+
+    private static byte[] readFully(AudioInputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void applyVolume(byte[] pcm, double volume) {
+        if (volume >= 1.0) {
+            return;
+        }
+        for (int i = 0; i + 1 < pcm.length; i += 2) {
+            int sample = (short) ((pcm[i] & 0xff) | (pcm[i + 1] << 8));
+            sample = (int) (sample * volume);
+            pcm[i] = (byte) sample;
+            pcm[i + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * A sound scheduled to be played.
+     */
+    public static final class Cue {
+
+        private final String name;
+        private final long deadline;
+        private volatile boolean cancelled;
+
+        private Cue(String name, long deadline) {
+            this.name = name;
+            this.deadline = deadline;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Keeps the cue from starting, a cue already playing is not affected.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static final class Sound {
+
+        private final String name;
+        private final byte[] pcm;
+        private final Voice[] voices;
+        private final BlockingQueue<Voice> idleVoices;
+        private volatile long lastStart;
+        private volatile boolean started;
+
+        Sound(String name, AudioFormat format, byte[] pcm, int voiceCount) throws LineUnavailableException {
+            this.name = name;
+            this.pcm = pcm;
+            this.voices = new Voice[voiceCount];
+            this.idleVoices = new ArrayBlockingQueue<>(voiceCount);
+            int bufferSize = (int) (format.getFrameRate() * LINE_BUFFER_MILLIS / 1000) * format.getFrameSize();
+            for (int i = 0; i < voiceCount; i++) {
+                SourceDataLine line = AudioSystem.getSourceDataLine(format);
+                line.open(format, bufferSize);
+                line.start();
+                voices[i] = new Voice(this, line, i);
+                idleVoices.add(voices[i]);
+            }
+        }
+
+        /**
+         * Starts the sound on an idle voice, if all voices are busy it is
+         * skipped.
+         */
+        void start() {
+            Voice voice = idleVoices.poll();
+            if (voice != null) {
+                voice.play(pcm);
+            }
+        }
+
+        boolean startThrottled(long now, long minIntervalNanos) {
+            if (started && now - lastStart < minIntervalNanos) {
+                return false;
+            }
+            Voice voice = idleVoices.poll();
+            if (voice == null) {
+                return false;
+            }
+            lastStart = now;
+            started = true;
+            voice.play(pcm);
+            return true;
+        }
+
+        void stop() {
+            for (Voice voice : voices) {
+                voice.stop();
+            }
+        }
+
+        void close() {
+            for (Voice voice : voices) {
+                voice.close();
+            }
+        }
+    }
+
+    private static final class Voice {
+
+        private final Sound sound;
+        private final SourceDataLine line;
+        private final Thread writer;
+        private volatile byte[] pending;
+        private volatile boolean stopped;
+        private volatile boolean closed;
+
+        Voice(Sound sound, SourceDataLine line, int index) {
+            this.sound = sound;
+            this.line = line;
+            writer = new Thread(this::runWriter, "timebox-audio-" + sound.name + "-" + index);
+            writer.setDaemon(true);
+            writer.setPriority(Thread.MAX_PRIORITY);
+            writer.start();
+        }
+
+        void play(byte[] pcm) {
+            stopped = false;
+            pending = pcm;
+            LockSupport.unpark(writer);
+        }
+
+        void stop() {
+            stopped = true;
+            line.flush();
+        }
+
+        void close() {
+            closed = true;
+            stopped = true;
+            LockSupport.unpark(writer);
+            line.close();
+        }
+
+        private void runWriter() {
+            int frameSize = line.getFormat().getFrameSize();
+            int chunk = Math.max(frameSize, line.getBufferSize() / 2 / frameSize * frameSize);
+            while (!closed) {
+                byte[] pcm = pending;
+                if (pcm == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                pending = null;
+                try {
+                    for (int offset = 0; offset < pcm.length && !stopped; offset += chunk) {
+                        line.write(pcm, offset, Math.min(chunk, pcm.length - offset));
+                    }
+                } catch (RuntimeException ex) {
+                    Logger.getLogger(AudioEngine.class.getName()).
+                            log(Level.WARNING, null, ex);
+                }
+                if (!closed) {
+                    sound.idleVoices.offer(this);
+                }
+            }
+        }
+    }
+}
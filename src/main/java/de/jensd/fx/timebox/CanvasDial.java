@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javafx.animation.AnimationTimer;
+import javafx.beans.Observable;
+import javafx.beans.property.DoubleProperty;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.shape.Arc;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Shape;
+import javafx.scene.shape.StrokeLineCap;
+
+/**
+ * Draws the static parts of the dial into two cached canvases, one below and
+ * one above the moving time left slice.
+ * <p>
+ * The canvases are only redrawn when the size or the start length changes,
+ * at most once per pulse, while the node based dial moves 60 tick lines on
+ * every resize.
+ * <p>
+ * The colors and effects come from the stylesheet: the dial keeps one empty
+ * shape per style class of the node based dial, CSS styles them like any
+ * other node and the canvases are painted with their fills, strokes and
+ * effects.
+ *
+ * @author Jens Deters
+ */
+public class CanvasDial {
+
+    private static final double CENTER_RADIUS = 75.0;
+
+    private final Canvas underlay;
+    private final Canvas overlay;
+    private final DoubleProperty scaleProperty;
+    private final DoubleProperty centerXProperty;
+    private final DoubleProperty centerYProperty;
+    private final DoubleProperty startLengthProperty;
+    private final Shape backgroundStyle;
+    private final Shape timerBackgroundStyle;
+    private final Shape tickStyle;
+    private final Shape centerStyle;
+    private final AnimationTimer redrawTimer;
+    private boolean overlayDirty;
+    private boolean underlayDirty;
+
+    public CanvasDial(DoubleProperty scaleProperty, DoubleProperty centerXProperty, DoubleProperty centerYProperty, DoubleProperty startLengthProperty) {
+        this.scaleProperty = scaleProperty;
+        this.centerXProperty = centerXProperty;
+        this.centerYProperty = centerYProperty;
+        this.startLengthProperty = startLengthProperty;
+        underlay = new Canvas();
+        overlay = new Canvas();
+        overlay.setMouseTransparent(true);
+        backgroundStyle = createStyleShape(new Circle(), "background-slice-arc");
+        timerBackgroundStyle = createStyleShape(new Arc(), "timer-background-slice-arc");
+        tickStyle = createStyleShape(new Line(), "tick");
+        centerStyle = createStyleShape(new Circle(), "center-slice-arc");
+        redrawTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                redraw();
+            }
+        };
+        scaleProperty.addListener(this::sizeInvalidated);
+        centerXProperty.addListener(this::sizeInvalidated);
+        centerYProperty.addListener(this::sizeInvalidated);
+        startLengthProperty.addListener((Observable observable) -> {
+            underlayDirty = true;
+            redrawTimer.start();
+        });
+        overlayDirty = true;
+        underlayDirty = true;
+        redraw();
+    }
+
+    /**
+     * @return the canvas below the time left slice, it takes the mouse input
+     * of the dial
+     */
+    public Canvas getUnderlay() {
+        return underlay;
+    }
+
+    /**
+     * @return the canvas above the time left slice
+     */
+    public Canvas getOverlay() {
+        return overlay;
+    }
+
+    /**
+     * @return the empty shapes carrying the styles of the dial, they have to
+     * be in the scene to be styled
+     */
+    public List<Node> getStyleNodes() {
+        return Collections.unmodifiableList(Arrays.asList(backgroundStyle, timerBackgroundStyle, tickStyle, centerStyle));
+    }
+
+    /**
+     * @return true if the given scene coordinates are on the dial
+     */
+    public boolean isOnDial(double x, double y) {
+        double dx = x - centerXProperty.get();
+        double dy = y - centerYProperty.get();
+        double radius = scaleProperty.get();
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    /**
+     * A shape of no size that is never seen, a change of its style repaints
+     * the canvases.
+     */
+    private Shape createStyleShape(Shape shape, String styleClass) {
+        shape.getStyleClass().setAll(styleClass);
+        shape.setManaged(false);
+        shape.setMouseTransparent(true);
+        shape.fillProperty().addListener(this::sizeInvalidated);
+        shape.strokeProperty().addListener(this::sizeInvalidated);
+        shape.effectProperty().addListener(this::sizeInvalidated);
+        return shape;
+    }
+
+    private void sizeInvalidated(Observable observable) {
+        overlayDirty = true;
+        underlayDirty = true;
+        redrawTimer.start();
+    }
+
+    private void redraw() {
+        double width = centerXProperty.get() * 2;
+        double height = centerYProperty.get() * 2;
+        if (underlayDirty) {
+            underlayDirty = false;
+            underlay.setWidth(width);
+            underlay.setHeight(height);
+            drawUnderlay(underlay.getGraphicsContext2D());
+        }
+        if (overlayDirty) {
+            overlayDirty = false;
+            overlay.setWidth(width);
+            overlay.setHeight(height);
+            drawOverlay(overlay.getGraphicsContext2D());
+        }
+    }
+
+    private void drawUnderlay(GraphicsContext gc) {
+        double centerX = centerXProperty.get();
+        double centerY = centerYProperty.get();
+        double radius = scaleProperty.get();
+        gc.clearRect(0, 0, underlay.getWidth(), underlay.getHeight());
+        gc.setFill(backgroundStyle.getFill());
+        gc.setEffect(backgroundStyle.getEffect());
+        gc.fillOval(centerX - radius, centerY - radius, radius * 2, radius * 2);
+        gc.setEffect(timerBackgroundStyle.getEffect());
+        gc.setFill(timerBackgroundStyle.getFill());
+        gc.fillArc(centerX - radius, centerY - radius, radius * 2, radius * 2, 90.0, startLengthProperty.get() * 6, ArcType.ROUND);
+        gc.setEffect(null);
+    }
+
+    private void drawOverlay(GraphicsContext gc) {
+        double centerX = centerXProperty.get();
+        double centerY = centerYProperty.get();
+        double scale = scaleProperty.get();
+        gc.clearRect(0, 0, overlay.getWidth(), overlay.getHeight());
+        gc.save();
+        gc.setEffect(tickStyle.getEffect());
+        gc.setStroke(tickStyle.getStroke());
+        gc.setLineCap(StrokeLineCap.ROUND);
+        gc.setLineWidth(scale * 0.03);
+        gc.translate(centerX, centerY);
+        // same geometry as the node dial: ticks reach from 0.2 to 0.25 (0.3 every quarter) of the scale,
+        // measured from the top, rotated around the center
+        for (int n = 0; n < 60; n++) {
+            double endYfactor = (n % 5 == 0 ? 0.25 : 0.2);
+            if (n % 15 == 0) {
+                endYfactor = 0.3;
+            }
+            gc.strokeLine(0, scale * 0.2 - centerY, 0, scale * endYfactor - centerY);
+            gc.rotate(6);
+        }
+        gc.restore();
+        gc.setFill(centerStyle.getFill());
+        gc.setEffect(centerStyle.getEffect());
+        gc.fillOval(centerX - CENTER_RADIUS, centerY - CENTER_RADIUS, CENTER_RADIUS * 2, CENTER_RADIUS * 2);
+        gc.setEffect(null);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import de.jensd.fx.timebox.TimerClockWork.Mode;
+import de.jensd.fx.timebox.TimerCore.State;
+
+/**
+ * What a {@link TimerClockWork} shows, packed into a single {@code long}.
+ * <p>
+ * The clock work publishes one value per tick, transition and frame of the
+ * start and stop animations, read it with
+ * {@link TimerClockWork#getClockFace()} from any thread and take it apart
+ * with the methods of this class. All parts come from the same tick, no
+ * lock, allocation or {@code Platform.runLater} is needed.
+ * <pre>
+ *  0..47  milliseconds left, signed, negative while overdue
+ * 48..50  ordinal of the {@link State} of the core
+ *     51  running
+ *     52  finished
+ *     53  overdue mode
+ *     54  overdue running
+ * </pre>
+ *
+ * @author Jens Deters
+ */
+public final class ClockFace {
+
+    public static final long IDLE = pack(State.IDLE, false, false, Mode.NORMAL, false, 0);
+
+    private static final int MILLIS_BITS = 48;
+    private static final long MILLIS_MASK = (1L << MILLIS_BITS) - 1;
+    private static final int STATE_SHIFT = MILLIS_BITS;
+    private static final long RUNNING = 1L << 51;
+    private static final long FINISHED = 1L << 52;
+    private static final long OVERDUE_MODE = 1L << 53;
+    private static final long OVERDUE_RUNNING = 1L << 54;
+    private static final State[] STATES = State.values();
+
+    private ClockFace() {
+    }
+
+    public static long pack(State state, boolean running, boolean finished, Mode mode, boolean overdueRunning, long millisLeft) {
+        return (millisLeft & MILLIS_MASK)
+                | ((long) state.ordinal() << STATE_SHIFT)
+                | (running ? RUNNING : 0)
+                | (finished ? FINISHED : 0)
+                | (mode == Mode.OVERDUE ? OVERDUE_MODE : 0)
+                | (overdueRunning ? OVERDUE_RUNNING : 0);
+    }
+
+    public static long millisLeft(long face) {
+        // sign extend the 48 bits
+        return (face << (Long.SIZE - MILLIS_BITS)) >> (Long.SIZE - MILLIS_BITS);
+    }
+
+    /**
+     * The minutes, seconds and milliseconds are split like
+     * {@link TimerClockWork#minutesProperty()} and its siblings.
+     */
+    public static int minutes(long face) {
+        return (int) Math.floorMod(Math.floorDiv(millisLeft(face), 60000L), 60L);
+    }
+
+    public static int seconds(long face) {
+        return (int) Math.floorMod(Math.floorDiv(millisLeft(face), 1000L), 60L);
+    }
+
+    public static int milliSeconds(long face) {
+        return (int) Math.floorMod(millisLeft(face), 1000L);
+    }
+
+    public static State getState(long face) {
+        return STATES[(int) (face >>> STATE_SHIFT) & 0x7];
+    }
+
+    public static boolean isRunning(long face) {
+        return (face & RUNNING) != 0;
+    }
+
+    public static boolean isFinished(long face) {
+        return (face & FINISHED) != 0;
+    }
+
+    public static Mode getMode(long face) {
+        return (face & OVERDUE_MODE) != 0 ? Mode.OVERDUE : Mode.NORMAL;
+    }
+
+    public static boolean isOverdueRunning(long face) {
+        return (face & OVERDUE_RUNNING) != 0;
+    }
+
+    public static String toString(long face) {
+        return "ClockFace{state=" + getState(face) + ", running=" + isRunning(face) + ", finished=" + isFinished(face)
+                + ", mode=" + getMode(face) + ", overdueRunning=" + isOverdueRunning(face)
+                + ", millisLeft=" + millisLeft(face) + "}";
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a timebox in a terminal, e.g. in a CI job.
+ * <p>
+ * Uses the same {@link TimerCore} as the app and reads the same settings
+ * from timebox.properties, but never touches JavaFX, so it starts as fast as
+ * the JVM does. On a console the counter is updated in place, Enter pauses
+ * and continues, q and Enter stops. Without a console one line is printed
+ * per minute, and only p pauses and continues, empty lines are ignored. At
+ * the end of the input a paused timer continues and runs to its end.
+ * <pre>
+ * ConsoleTimer [minutes | mm:ss] [--overdue]
+ * </pre>
+ *
+ * @author Jens Deters
+ */
+public class ConsoleTimer {
+
+    private static final String PROPERTIES_FILE = "/timebox.properties";
+    private static final char BELL = '\u0007';
+    private static final String QUIT = "q";
+    private static final String PAUSE = "p";
+    // queued by the reader after the last line, compared by identity
+    private static final String END_OF_INPUT = new String("end of input");
+
+    private final TimerCore core = new TimerCore();
+    private final Properties appProperties;
+    private final PrintStream out;
+    private final boolean console;
+    private final BlockingQueue<String> commands = new LinkedBlockingQueue<>();
+    private int lastCounterIndex = -1;
+
+    public ConsoleTimer(Properties appProperties, PrintStream out, boolean console) {
+        this.appProperties = appProperties;
+        this.out = out;
+        this.console = console;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        long durationMillis = TimeUnit.MINUTES.toMillis(5);
+        boolean overdueOn = false;
+        for (String arg : args) {
+            if ("--overdue".equals(arg)) {
+                overdueOn = true;
+            } else {
+                durationMillis = parseDuration(arg);
+                if (durationMillis <= 0) {
+                    System.err.println("usage: ConsoleTimer [minutes | mm:ss] [--overdue]");
+                    System.exit(2);
+                }
+            }
+        }
+        ConsoleTimer timer = new ConsoleTimer(loadAppProperties(), System.out, System.console() != null);
+        System.exit(timer.run(durationMillis, overdueOn, System.in));
+    }
+
+    /**
+     * Runs the timebox until it finishes or is stopped.
+     *
+     * @return the exit code, 0 if the timebox ran to its end
+     */
+    public int run(long durationMillis, boolean overdueOn, InputStream in) throws InterruptedException {
+        out.println(appProperties.getProperty("app.name") + " " + appProperties.getProperty("app.version")
+                + (console ? " - Enter pauses/continues, q Enter stops" : ""));
+        SessionJournal journal = openJournal();
+        readCommands(in);
+        boolean bell = Boolean.parseBoolean(getSetting("app.audio.on"));
+        core.addListener((TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) -> {
+            if (oldSnapshot.getState() == TimerCore.State.NORMAL
+                    && (newSnapshot.getState() == TimerCore.State.OVERDUE || newSnapshot.getState() == TimerCore.State.FINISHED)) {
+                if (bell) {
+                    out.print(BELL);
+                }
+                print(0, true);
+            }
+        });
+        core.setDurationMillis(durationMillis);
+        core.setOverdueOn(overdueOn);
+        core.start();
+        boolean completed = false;
+        try {
+            while (true) {
+                long millisLeft = core.update();
+                TimerCore.State state = core.getState();
+                if (state == TimerCore.State.FINISHED) {
+                    completed = true;
+                    break;
+                }
+                if (state != TimerCore.State.PAUSED) {
+                    print(millisLeft, false);
+                }
+                String command = commands.poll(millisToNextSecond(millisLeft, state), TimeUnit.MILLISECONDS);
+                if (command == null) {
+                    continue;
+                }
+                if (command == END_OF_INPUT) {
+                    // nothing could continue it any more
+                    core.resume();
+                    continue;
+                }
+                command = command.trim();
+                if (QUIT.equalsIgnoreCase(command)) {
+                    completed = state == TimerCore.State.OVERDUE;
+                    break;
+                }
+                if (!PAUSE.equalsIgnoreCase(command) && !(console && command.isEmpty())) {
+                    continue;
+                }
+                if (state == TimerCore.State.PAUSED) {
+                    core.resume();
+                } else {
+                    core.pause();
+                    out.print(console ? "\r " + CounterFormat.format(millisLeft) + " paused " : "paused\n");
+                    out.flush();
+                }
+            }
+        } finally {
+            core.stop();
+            if (journal != null) {
+                journal.close();
+            }
+            out.println();
+        }
+        return completed ? 0 : 1;
+    }
+
+    /**
+     * @param force print even if the counter did not change
+     */
+    private void print(long millisLeft, boolean force) {
+        int counterIndex = CounterFormat.index(millisLeft);
+        if (counterIndex == lastCounterIndex && !force) {
+            return;
+        }
+        lastCounterIndex = counterIndex;
+        String sign = millisLeft < 0 ? "+" : " ";
+        if (console) {
+            out.print("\r" + sign + CounterFormat.text(counterIndex) + "        ");
+            out.flush();
+        } else if (force || (counterIndex % 60 == 0 && counterIndex != 0)) {
+            out.println(sign + CounterFormat.text(counterIndex));
+        }
+    }
+
+    /**
+     * @return the milliseconds until the displayed second changes, the
+     * deadline itself is the last change of the countdown
+     */
+    private static long millisToNextSecond(long millisLeft, TimerCore.State state) {
+        if (state == TimerCore.State.PAUSED) {
+            return Long.MAX_VALUE;
+        }
+        // the counter shows the full seconds left, or overdue
+        return millisLeft >= 0 ? millisLeft % 1000 + 1 : 1000 - Math.floorMod(-millisLeft - 1, 1000L);
+    }
+
+    private void readCommands(InputStream in) {
+        Thread reader = new Thread(() -> {
+            try {
+                BufferedReader lines = new BufferedReader(new InputStreamReader(in));
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    commands.add(line);
+                }
+            } catch (IOException ex) {
+                // no input, the timer just runs
+            }
+            commands.add(END_OF_INPUT);
+        }, "timebox-console-input");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private SessionJournal openJournal() {
+        if (!Boolean.parseBoolean(getSetting("app.journal.enabled"))) {
+            return null;
+        }
+        String dataDir = getSetting("app.data.dir");
+        Path directory = dataDir == null || dataDir.isEmpty() ? Paths.get(System.getProperty("user.home"), ".timeboxfx") : Paths.get(dataDir);
+        try {
+            SessionJournal journal = new SessionJournal(directory.resolve("journal"));
+            journal.attach(core, 0);
+            return journal;
+        } catch (IOException ex) {
+            System.err.println("Session journal not available: " + ex);
+            return null;
+        }
+    }
+
+    private String getSetting(String key) {
+        return System.getProperty(key, appProperties.getProperty(key));
+    }
+
+    /**
+     * @return the milliseconds of "minutes" or "mm:ss", -1 if invalid
+     */
+    static long parseDuration(String value) {
+        try {
+            int colon = value.indexOf(':');
+            if (colon < 0) {
+                return TimeUnit.MINUTES.toMillis(Integer.parseInt(value));
+            }
+            return TimeUnit.MINUTES.toMillis(Integer.parseInt(value.substring(0, colon)))
+                    + TimeUnit.SECONDS.toMillis(Integer.parseInt(value.substring(colon + 1)));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static Properties loadAppProperties() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = ConsoleTimer.class.getResourceAsStream(PROPERTIES_FILE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+}
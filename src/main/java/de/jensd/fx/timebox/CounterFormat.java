@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+/**
+ * Precomputed "mm:ss" counter texts, so showing the time left does not
+ * allocate anything. Past 99:59, e.g. a box running overdue all day, the
+ * counter reads "h:mm:ss", formatted once per second.
+ *
+ * @author Jens Deters
+ */
+public final class CounterFormat {
+
+    /**
+     * Number of precomputed counter texts, 00:00 to 99:59.
+     */
+    public static final int SIZE = 100 * 60;
+
+    private static final String[] TEXTS = new String[SIZE];
+
+    static {
+        char[] digits = new char[5];
+        digits[2] = ':';
+        for (int i = 0; i < SIZE; i++) {
+            int minutes = i / 60;
+            int seconds = i % 60;
+            digits[0] = (char) ('0' + minutes / 10);
+            digits[1] = (char) ('0' + minutes % 10);
+            digits[3] = (char) ('0' + seconds / 10);
+            digits[4] = (char) ('0' + seconds % 10);
+            TEXTS[i] = new String(digits);
+        }
+    }
+
+    private CounterFormat() {
+    }
+
+    /**
+     * Maps the time left to the index of its counter text. A countdown shows
+     * the full seconds left, an overdue timer (negative time left) the full
+     * seconds it has been running past its deadline.
+     *
+     * @param millisLeft the milliseconds left, negative while overdue
+     * @return the index to pass to {@link #text(int)}
+     */
+    public static int index(long millisLeft) {
+        long seconds = millisLeft < 0 ? Math.floorDiv(-millisLeft - 1, 1000L) : millisLeft / 1000L;
+        return (int) Math.min(seconds, Integer.MAX_VALUE);
+    }
+
+    public static String text(int index) {
+        if (index < SIZE) {
+            return TEXTS[index];
+        }
+        int hours = index / 3600;
+        int minutes = index / 60 % 60;
+        int seconds = index % 60;
+        return hours + (minutes < 10 ? ":0" : ":") + minutes + (seconds < 10 ? ":0" : ":") + seconds;
+    }
+
+    public static String format(long millisLeft) {
+        return text(index(millisLeft));
+    }
+}
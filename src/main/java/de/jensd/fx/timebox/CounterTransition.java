@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import javafx.animation.Transition;
+import javafx.beans.property.LongProperty;
+import javafx.util.Duration;
+
+/**
+ * Animates the time left shown by a {@link TimerClockWork} to a target, e.g.
+ * to the full length when a box starts.
+ * <p>
+ * Unlike a {@link javafx.animation.Timeline} with a fixed key value, one
+ * instance serves every start or stop, so a display running all day does not
+ * create new animations per box.
+ *
+ * @author Jens Deters
+ */
+public class CounterTransition extends Transition {
+
+    private final LongProperty millisLeft;
+    private long fromMillis;
+    private long toMillis;
+
+    public CounterTransition(Duration duration, LongProperty millisLeft) {
+        this.millisLeft = millisLeft;
+        setCycleDuration(duration);
+    }
+
+    /**
+     * Animates from the current time left to the given one.
+     */
+    public void playTo(long millis) {
+        stop();
+        fromMillis = millisLeft.get();
+        toMillis = millis;
+        playFromStart();
+    }
+
+    @Override
+    protected void interpolate(double frac) {
+        millisLeft.set(fromMillis + Math.round((toMillis - fromMillis) * frac));
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+/**
+ * Geometry of the dial shared by the renderers and the input handling.
+ *
+ * @author Jens Deters
+ */
+public final class DialGeometry {
+
+    private DialGeometry() {
+    }
+
+    /**
+     * Maps a point relative to the center of the dial to the start length in
+     * minutes, 0 at twelve o'clock counting counter clockwise.
+     *
+     * @param dx horizontal distance from the center
+     * @param dy vertical distance from the center
+     * @return the whole minutes from 0 to 60
+     */
+    public static double startLengthAt(double dx, double dy) {
+        double angle = Math.toDegrees(Math.atan2(dx, dy)) + 180;
+        return Math.round(angle / 6);
+    }
+}
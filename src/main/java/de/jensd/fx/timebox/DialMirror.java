@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.ArrayList;
+import java.util.List;
+import javafx.animation.AnimationTimer;
+import javafx.beans.Observable;
+import javafx.beans.value.ObservableValue;
+import javafx.geometry.Bounds;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.transform.Transform;
+
+/**
+ * Shows a node in more places than one, e.g. the timer on the presenter's
+ * screen and on a projector.
+ * <p>
+ * The node is rendered once into a shared {@link WritableImage} and every
+ * {@link ImageView} created by {@link #createView()} presents that image at
+ * its own size, an extra view costs one scaled image draw per frame. The
+ * snapshot is taken at most once per pulse and only after one of the watched
+ * observables has changed, in the resolution of the largest view so that a
+ * projector does not show an upscaled image.
+ *
+ * @author Jens Deters
+ */
+public class DialMirror {
+
+    private static final double MAX_RENDER_SCALE = 4.0;
+
+    private final Node source;
+    private final List<ImageView> views = new ArrayList<>();
+    private final List<ObservableValue<?>> watched = new ArrayList<>();
+    private final SnapshotParameters parameters = new SnapshotParameters();
+    private final AnimationTimer updateTimer;
+    private WritableImage image;
+    private double renderScale;
+
+    public DialMirror(Node source) {
+        this.source = source;
+        parameters.setFill(Color.TRANSPARENT);
+        updateTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                update();
+            }
+        };
+    }
+
+    /**
+     * Takes a new snapshot whenever one of the observables changes.
+     */
+    public void watch(Observable... observables) {
+        for (Observable observable : observables) {
+            observable.addListener(this::invalidated);
+            if (observable instanceof ObservableValue) {
+                watched.add((ObservableValue<?>) observable);
+            }
+        }
+    }
+
+    /**
+     * @return a new view of the mirrored node, it fills the size given by
+     * {@link ImageView#fitWidthProperty()} and
+     * {@link ImageView#fitHeightProperty()} keeping the ratio
+     */
+    public ImageView createView() {
+        ImageView view = new ImageView(image);
+        view.setPreserveRatio(true);
+        view.setSmooth(true);
+        view.fitWidthProperty().addListener(this::invalidated);
+        view.fitHeightProperty().addListener(this::invalidated);
+        views.add(view);
+        updateTimer.start();
+        return view;
+    }
+
+    public void removeView(ImageView view) {
+        if (views.remove(view)) {
+            view.setImage(null);
+        }
+        if (views.isEmpty()) {
+            updateTimer.stop();
+            image = null;
+        }
+    }
+
+    /**
+     * Takes a new snapshot with the next pulse, for changes that are not
+     * watched.
+     */
+    public void invalidate() {
+        if (!views.isEmpty()) {
+            updateTimer.start();
+        }
+    }
+
+    private void invalidated(Observable observable) {
+        invalidate();
+    }
+
+    private void update() {
+        Bounds bounds = source.getLayoutBounds();
+        if (bounds.getWidth() <= 0 || bounds.getHeight() <= 0) {
+            return;
+        }
+        double scale = 1.0;
+        for (ImageView view : views) {
+            scale = Math.max(scale, Math.min(view.getFitWidth() / bounds.getWidth(), view.getFitHeight() / bounds.getHeight()));
+        }
+        scale = Math.min(scale, MAX_RENDER_SCALE);
+        if (scale != renderScale) {
+            renderScale = scale;
+            parameters.setTransform(Transform.scale(scale, scale));
+        }
+        int width = (int) Math.ceil(bounds.getWidth() * scale);
+        int height = (int) Math.ceil(bounds.getHeight() * scale);
+        if (image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+            image = new WritableImage(width, height);
+            for (ImageView view : views) {
+                view.setImage(image);
+            }
+        }
+        // the layout area only, drop shadows reaching out of it are cut
+        parameters.setViewport(new Rectangle2D(bounds.getMinX() * scale, bounds.getMinY() * scale, width, height));
+        source.snapshot(parameters, image);
+        // an invalidation listener only fires again once the value has been read
+        for (ObservableValue<?> observable : watched) {
+            observable.getValue();
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javafx.beans.Observable;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
+import javafx.scene.Node;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Arc;
+import javafx.scene.shape.ArcType;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.transform.Rotate;
+
+/**
+ * Lays out the dial, the counter, the buttons and the app info.
+ * <p>
+ * All geometry is derived from the size of the pane in one
+ * {@link #layoutChildren()} pass, setting the shapes directly instead of
+ * through a web of bindings. The shapes are unmanaged, so the time left slice
+ * moving on every tick does not cause a relayout. The counter, buttons and
+ * info are centered from their current bounds.
+ *
+ * @author Jens Deters
+ */
+public class DialPane extends Region {
+
+    private static final double PREF_SIZE = 500.0;
+    /**
+     * The height of the pane per radius of the dial.
+     */
+    private static final double HEIGHT_PER_RADIUS = 2.2;
+    private static final double CENTER_RADIUS = 75.0;
+    private static final int TICKS = 60;
+
+    private final DoubleProperty scaleProperty = new SimpleDoubleProperty(200);
+    private final DoubleProperty centerXProperty = new SimpleDoubleProperty(200);
+    private final DoubleProperty centerYProperty = new SimpleDoubleProperty(200);
+    private final Arc timeLeftSliceArc;
+    private final Node counter;
+    private final Region buttonsBox;
+    private final Region infoBox;
+    private final List<Node> inputNodes = new ArrayList<>();
+    private Arc timeLeftBackgroundSliceArc;
+    private Circle backgroundSliceArc;
+    private Circle centerSliceArc;
+    private Line[] ticks;
+    private Rotate[] tickRotations;
+
+    /**
+     * @param startLengthProperty the start length in minutes
+     * @param timeLeftSliceArc the slice showing the time left
+     * @param counter the counter, centered above the buttons
+     * @param buttonsBox the buttons, centered below the counter
+     * @param infoBox the app info, centered in the lower half of the dial
+     * @param canvas true to draw the static parts with a {@link CanvasDial},
+     * false to build them from nodes
+     */
+    public DialPane(DoubleProperty startLengthProperty, Arc timeLeftSliceArc, Node counter, Region buttonsBox, Region infoBox, boolean canvas) {
+        this.timeLeftSliceArc = timeLeftSliceArc;
+        this.counter = counter;
+        this.buttonsBox = buttonsBox;
+        this.infoBox = infoBox;
+        timeLeftSliceArc.setManaged(false);
+        if (canvas) {
+            createCanvasDial(startLengthProperty);
+        } else {
+            createNodeDial(startLengthProperty);
+        }
+        getChildren().addAll(counter, buttonsBox, infoBox);
+    }
+
+    private void createNodeDial(DoubleProperty startLengthProperty) {
+        timeLeftBackgroundSliceArc = new Arc();
+        timeLeftBackgroundSliceArc.setFill(new Color(1, 1, 1, 0.9));
+        timeLeftBackgroundSliceArc.setStartAngle(90.0);
+        timeLeftBackgroundSliceArc.setType(ArcType.ROUND);
+        timeLeftBackgroundSliceArc.getStyleClass().setAll("timer-background-slice-arc");
+        timeLeftBackgroundSliceArc.setLength(startLengthProperty.get() * 6);
+        startLengthProperty.addListener((Observable observable) -> {
+            timeLeftBackgroundSliceArc.setLength(startLengthProperty.get() * 6);
+        });
+        backgroundSliceArc = new Circle();
+        backgroundSliceArc.getStyleClass().setAll("background-slice-arc");
+        centerSliceArc = new Circle(CENTER_RADIUS);
+        centerSliceArc.getStyleClass().setAll("center-slice-arc");
+        getChildren().addAll(backgroundSliceArc, timeLeftBackgroundSliceArc, timeLeftSliceArc);
+        ticks = new Line[TICKS];
+        tickRotations = new Rotate[TICKS];
+        for (int n = 0; n < TICKS; n++) {
+            tickRotations[n] = new Rotate(360 / TICKS * n);
+            ticks[n] = new Line();
+            ticks[n].getStyleClass().setAll("tick");
+            ticks[n].setStrokeLineCap(StrokeLineCap.ROUND);
+            ticks[n].getTransforms().add(tickRotations[n]);
+            if (n % 15 == 0) {
+                ticks[n].setStroke(Color.YELLOWGREEN);
+            }
+        }
+        getChildren().addAll(ticks);
+        getChildren().add(centerSliceArc);
+        for (Node node : getChildren()) {
+            node.setManaged(false);
+        }
+        inputNodes.add(timeLeftBackgroundSliceArc);
+        inputNodes.add(backgroundSliceArc);
+    }
+
+    private void createCanvasDial(DoubleProperty startLengthProperty) {
+        CanvasDial canvasDial = new CanvasDial(scaleProperty, centerXProperty, centerYProperty, startLengthProperty);
+        canvasDial.getUnderlay().setManaged(false);
+        canvasDial.getOverlay().setManaged(false);
+        getChildren().addAll(canvasDial.getStyleNodes());
+        getChildren().addAll(canvasDial.getUnderlay(), timeLeftSliceArc, canvasDial.getOverlay());
+        inputNodes.add(canvasDial.getUnderlay());
+    }
+
+    /**
+     * @return the nodes taking the mouse input of the dial
+     */
+    public List<Node> getInputNodes() {
+        return Collections.unmodifiableList(inputNodes);
+    }
+
+    /**
+     * @return the radius of the dial
+     */
+    public ReadOnlyDoubleProperty scaleProperty() {
+        return scaleProperty;
+    }
+
+    public ReadOnlyDoubleProperty centerXProperty() {
+        return centerXProperty;
+    }
+
+    public ReadOnlyDoubleProperty centerYProperty() {
+        return centerYProperty;
+    }
+
+    /**
+     * @return true if the given scene coordinates are on the dial
+     */
+    public boolean isOnDial(double sceneX, double sceneY) {
+        Point2D center = localToScene(centerXProperty.get(), centerYProperty.get());
+        double dx = sceneX - center.getX();
+        double dy = sceneY - center.getY();
+        double radius = scaleProperty.get();
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    /**
+     * @return the start length in minutes the given scene coordinates point
+     * to
+     */
+    public double startLengthAt(double sceneX, double sceneY) {
+        Point2D center = localToScene(centerXProperty.get(), centerYProperty.get());
+        return DialGeometry.startLengthAt(sceneX - center.getX(), sceneY - center.getY());
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double centerX = getWidth() / 2;
+        double centerY = getHeight() / 2;
+        double scale = getHeight() / HEIGHT_PER_RADIUS;
+        // the canvas dial redraws from these
+        scaleProperty.set(scale);
+        centerXProperty.set(centerX);
+        centerYProperty.set(centerY);
+        layoutSlice(timeLeftSliceArc, centerX, centerY, scale);
+        if (ticks != null) {
+            layoutSlice(timeLeftBackgroundSliceArc, centerX, centerY, scale);
+            backgroundSliceArc.setCenterX(centerX);
+            backgroundSliceArc.setCenterY(centerY);
+            backgroundSliceArc.setRadius(scale);
+            centerSliceArc.setCenterX(centerX);
+            centerSliceArc.setCenterY(centerY);
+            // the ticks reach from 0.2 to 0.25 (0.3 every quarter) of the scale, measured from the top,
+            // rotated around the center
+            double strokeWidth = scale * 0.03;
+            for (int n = 0; n < TICKS; n++) {
+                double endYfactor = (n % 5 == 0 ? 0.25 : 0.2);
+                if (n % 15 == 0) {
+                    endYfactor = 0.3;
+                }
+                tickRotations[n].setPivotX(centerX);
+                tickRotations[n].setPivotY(centerY);
+                Line tick = ticks[n];
+                tick.setStrokeWidth(strokeWidth);
+                tick.setStartX(centerX);
+                tick.setStartY(scale * 0.2);
+                tick.setEndX(centerX);
+                tick.setEndY(scale * endYfactor);
+            }
+        }
+        Bounds counterBounds = counter.getLayoutBounds();
+        counter.relocate(centerX - counterBounds.getWidth() / 2, centerY + 10 - counterBounds.getHeight());
+        buttonsBox.autosize();
+        buttonsBox.relocate(centerX - buttonsBox.getWidth() / 2, centerY + 20);
+        infoBox.autosize();
+        infoBox.relocate(centerX - infoBox.getWidth() / 2, centerY + 100);
+    }
+
+    private static void layoutSlice(Arc slice, double centerX, double centerY, double radius) {
+        slice.setCenterX(centerX);
+        slice.setCenterY(centerY);
+        slice.setRadiusX(radius);
+        slice.setRadiusY(radius);
+    }
+
+    @Override
+    protected double computePrefWidth(double height) {
+        return PREF_SIZE;
+    }
+
+    @Override
+    protected double computePrefHeight(double width) {
+        return PREF_SIZE;
+    }
+}
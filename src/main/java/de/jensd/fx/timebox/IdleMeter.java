@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.Scene;
+
+/**
+ * Measures what the app costs while no box is running or a box is paused.
+ * <p>
+ * Counts the pulses JavaFX actually runs and the CPU time of the process, but
+ * only while the timer is idle or paused, and logs both per minute. The
+ * counting itself never requests a pulse, a quiet window reports zero.
+ *
+ * @author Jens Deters
+ */
+public class IdleMeter {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double NANOS_PER_MINUTE = 60_000_000_000.0;
+
+    private final AtomicLong pulses = new AtomicLong();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private ScheduledExecutorService logExecutor;
+
+    private boolean idle;
+    private long idleStart;
+    private long pulsesAtIdleStart;
+    private long cpuAtIdleStart;
+    private long idleNanos;
+    private long idlePulses;
+    private long idleCpuNanos;
+
+    /**
+     * Counts the pulses of the scene.
+     *
+     * @return false if the JavaFX version offers no way to count them
+     */
+    public boolean attach(Scene scene) {
+        Runnable counter = pulses::incrementAndGet;
+        try {
+            // JavaFX 9 and later
+            Method add = Scene.class.getMethod("addPostLayoutPulseListener", Runnable.class);
+            add.invoke(scene, counter);
+            return true;
+        } catch (ReflectiveOperationException ex) {
+            // JavaFX 8, the same listener exists in the toolkit only
+        }
+        try {
+            Class<?> toolkitClass = Class.forName("com.sun.javafx.tk.Toolkit");
+            Class<?> listenerClass = Class.forName("com.sun.javafx.tk.TKPulseListener");
+            Object toolkit = toolkitClass.getMethod("getToolkit").invoke(null);
+            Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[]{listenerClass},
+                    (Object proxy, Method method, Object[] args) -> {
+                        if ("pulse".equals(method.getName())) {
+                            counter.run();
+                            return null;
+                        }
+                        return method.invoke(counter, args);
+                    });
+            toolkitClass.getMethod("addSceneTkPulseListener", listenerClass).invoke(toolkit, listener);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            Logger.getLogger(IdleMeter.class.getName()).
+                    log(Level.WARNING, "Pulses can not be counted", ex);
+            return false;
+        }
+    }
+
+    /**
+     * @param idle true while no box is running or the box is paused
+     */
+    public synchronized void setIdle(boolean idle) {
+        if (this.idle == idle) {
+            return;
+        }
+        this.idle = idle;
+        if (idle) {
+            idleStart = System.nanoTime();
+            pulsesAtIdleStart = pulses.get();
+            cpuAtIdleStart = getProcessCpuTime();
+        } else {
+            accumulate();
+        }
+    }
+
+    /**
+     * Logs a summary line every {@code seconds}.
+     */
+    public synchronized void startLogging(long seconds) {
+        if (logExecutor == null && seconds > 0) {
+            logExecutor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+                Thread thread = new Thread(r, "timebox-idle-meter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logExecutor.scheduleAtFixedRate(() -> {
+                Logger.getLogger(IdleMeter.class.getName()).info(report());
+            }, seconds, seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stopLogging() {
+        if (logExecutor != null) {
+            logExecutor.shutdownNow();
+            logExecutor = null;
+        }
+    }
+
+    /**
+     * Summarizes the idle time since the last report and starts over.
+     */
+    public synchronized String report() {
+        if (idle) {
+            accumulate();
+            setIdle(true);
+        }
+        String report;
+        if (idleNanos == 0) {
+            report = "idle meter: not idle since the last report";
+        } else {
+            double minutes = idleNanos / NANOS_PER_MINUTE;
+            report = String.format("idle meter: idle or paused for %.1f s, %d pulses (%.1f per minute), CPU %s",
+                    idleNanos / 1e9, idlePulses, idlePulses / minutes,
+                    idleCpuNanos < 0 ? "not available" : String.format("%.1f ms (%.1f ms per minute)",
+                            idleCpuNanos / NANOS_PER_MILLI, idleCpuNanos / NANOS_PER_MILLI / minutes));
+        }
+        idleNanos = 0;
+        idlePulses = 0;
+        idleCpuNanos = 0;
+        return report;
+    }
+
+    private void accumulate() {
+        idle = false;
+        idleNanos += System.nanoTime() - idleStart;
+        idlePulses += pulses.get() - pulsesAtIdleStart;
+        long cpu = getProcessCpuTime();
+        idleCpuNanos = cpu < 0 || cpuAtIdleStart < 0 || idleCpuNanos < 0 ? -1 : idleCpuNanos + cpu - cpuAtIdleStart;
+    }
+
+    /**
+     * @return the CPU nanoseconds used by the whole process, -1 if unknown
+     */
+    private long getProcessCpuTime() {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.animation.AnimationTimer;
+import javafx.scene.Scene;
+
+/**
+ * Hands the latest of many pointer positions over once per pulse.
+ * <p>
+ * A 1000 Hz mouse or a touch panel delivers many drag events per frame, only
+ * the last one of a frame can be seen. Positions are only stored when they
+ * arrive, the target gets the latest one in the next pulse, which also paints
+ * it. With {@link TimerMetrics} the time from the first event of a frame to
+ * the point of that pulse where the scene has been laid out is recorded, on
+ * JavaFX 8 a little later, once it has been copied to the render graph as
+ * well. JavaFX runs nothing on the FX thread once the frame has been drawn,
+ * so drawing and showing it are not included.
+ *
+ * @author Jens Deters
+ */
+public class InputCoalescer {
+
+    /**
+     * Takes the coalesced position, on the FX application thread.
+     */
+    public interface Target {
+
+        void moveTo(double sceneX, double sceneY);
+    }
+
+    private final Target target;
+    private final AnimationTimer pulse;
+    private TimerMetrics metrics;
+    private Object frameListener;
+    private double sceneX;
+    private double sceneY;
+    private long firstEvent;
+    private int events;
+    private long appliedFirstEvent;
+    private int appliedEvents;
+
+    public InputCoalescer(Target target) {
+        this.target = target;
+        pulse = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                flush();
+            }
+        };
+    }
+
+    /**
+     * @param metrics records the time from input to frame once
+     * {@link #attachToPulse(Scene)} succeeded, null to record nothing
+     */
+    public void setMetrics(TimerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Listens for every pulse of the scene once it has been laid out, on
+     * JavaFX 8 for the end of every pulse, after all scenes have been laid
+     * out and copied to the render graph.
+     *
+     * @return false if the JavaFX version offers no way to listen
+     */
+    public boolean attachToPulse(Scene scene) {
+        if (frameListener != null) {
+            return true;
+        }
+        Runnable framed = this::framed;
+        try {
+            // JavaFX 9 and later
+            Method add = Scene.class.getMethod("addPostLayoutPulseListener", Runnable.class);
+            add.invoke(scene, framed);
+            frameListener = framed;
+            return true;
+        } catch (ReflectiveOperationException ex) {
+            // JavaFX 8, the same listener exists in the toolkit only
+        }
+        try {
+            Class<?> toolkitClass = Class.forName("com.sun.javafx.tk.Toolkit");
+            Class<?> listenerClass = Class.forName("com.sun.javafx.tk.TKPulseListener");
+            Object toolkit = toolkitClass.getMethod("getToolkit").invoke(null);
+            Object listener = Proxy.newProxyInstance(listenerClass.getClassLoader(), new Class<?>[]{listenerClass},
+                    (Object proxy, Method method, Object[] args) -> {
+                        if ("pulse".equals(method.getName())) {
+                            framed.run();
+                            return null;
+                        }
+                        return method.invoke(framed, args);
+                    });
+            toolkitClass.getMethod("addPostSceneTkPulseListener", listenerClass).invoke(toolkit, listener);
+            // the toolkit only keeps a weak reference
+            frameListener = listener;
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            Logger.getLogger(InputCoalescer.class.getName()).
+                    log(Level.WARNING, "The time from input to frame can not be recorded", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Takes a position, called for every input event.
+     */
+    public void submit(double sceneX, double sceneY) {
+        this.sceneX = sceneX;
+        this.sceneY = sceneY;
+        events++;
+        if (firstEvent == 0) {
+            firstEvent = System.nanoTime();
+            pulse.start();
+        }
+    }
+
+    private void flush() {
+        long since = firstEvent;
+        int coalesced = events;
+        firstEvent = 0;
+        events = 0;
+        target.moveTo(sceneX, sceneY);
+        if (metrics != null && frameListener != null) {
+            appliedFirstEvent = since;
+            appliedEvents = coalesced;
+        }
+    }
+
+    /**
+     * Called once the pulse has laid out the scene, records the input applied
+     * in it.
+     */
+    private void framed() {
+        if (appliedFirstEvent != 0) {
+            metrics.recordInput(System.nanoTime() - appliedFirstEvent, appliedEvents);
+            appliedFirstEvent = 0;
+            appliedEvents = 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+/**
+ * Timer transitions recorded by the {@link SessionJournal}.
+ *
+ * @author Jens Deters
+ */
+public enum JournalEvent {
+
+    START, PAUSE, CONTINUE, STOP, FINISH, OVERDUE;
+
+    private static final JournalEvent[] VALUES = values();
+
+    /**
+     * @return the code stored in a record, never 0
+     */
+    public byte code() {
+        return (byte) (ordinal() + 1);
+    }
+
+    /**
+     * @return the event of a stored code, null for an empty record
+     */
+    public static JournalEvent of(byte code) {
+        return code <= 0 || code > VALUES.length ? null : VALUES[code - 1];
+    }
+
+    /**
+     * @return the event a transition stands for, null if it is none
+     */
+    public static JournalEvent of(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+        TimerCore.State oldState = oldSnapshot.getState();
+        switch (newSnapshot.getState()) {
+            case IDLE:
+                return STOP;
+            case NORMAL:
+                return oldState == TimerCore.State.PAUSED ? CONTINUE : START;
+            case OVERDUE:
+                return oldState == TimerCore.State.PAUSED ? CONTINUE : OVERDUE;
+            case PAUSED:
+                return PAUSE;
+            case FINISHED:
+                return FINISH;
+            default:
+                return null;
+        }
+    }
+}
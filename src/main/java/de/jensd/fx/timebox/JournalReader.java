@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replays the records of a {@link SessionJournal}.
+ * <p>
+ * Segments are mapped read-only and visited in order, the records are handed
+ * over as primitives so replaying does not allocate per record.
+ *
+ * @author Jens Deters
+ */
+public final class JournalReader {
+
+    @FunctionalInterface
+    public interface Visitor {
+
+        void event(long timestamp, long timerId, JournalEvent event, long durationMillis, long millisLeft);
+    }
+
+    private JournalReader() {
+    }
+
+    /**
+     * @return the segment files of the journal, oldest first
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SessionJournal.SEGMENT_PREFIX + "*" + SessionJournal.SEGMENT_SUFFIX)) {
+                for (Path segment : stream) {
+                    segments.add(segment);
+                }
+            }
+        }
+        // fixed width sequence numbers sort by name
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public static void replay(Path directory, Visitor visitor) throws IOException {
+        for (Path segment : segments(directory)) {
+            replaySegment(segment, visitor);
+        }
+    }
+
+    public static void replaySegment(Path segment, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int limit = buffer.limit() - SessionJournal.RECORD_SIZE;
+            for (int offset = 0; offset <= limit; offset += SessionJournal.RECORD_SIZE) {
+                JournalEvent event = JournalEvent.of(buffer.get(offset + SessionJournal.EVENT_OFFSET));
+                if (event != null) {
+                    visitor.event(buffer.getLong(offset + SessionJournal.TIMESTAMP_OFFSET),
+                            buffer.getLong(offset + SessionJournal.TIMER_ID_OFFSET),
+                            event,
+                            buffer.getInt(offset + SessionJournal.DURATION_OFFSET),
+                            buffer.getLong(offset + SessionJournal.MILLIS_LEFT_OFFSET));
+                }
+            }
+        }
+    }
+
+    static long lastSequence(Path directory) throws IOException {
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        String name = segments.get(segments.size() - 1).getFileName().toString();
+        return Long.parseLong(name.substring(SessionJournal.SEGMENT_PREFIX.length(), name.length() - SessionJournal.SEGMENT_SUFFIX.length()));
+    }
+}
@@ -13,10 +13,17 @@
  */
 package de.jensd.fx.timebox;
 
+import java.util.List;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
+import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
 
@@ -26,12 +33,20 @@ import javafx.stage.WindowEvent;
  */
 public class Main extends Application {
 
+    static {
+        StartupProfiler.mark("main class loaded");
+    }
+
     private TimerView mainPane;
 
     @Override
     public void start(final Stage primaryStage) throws Exception {
+        StartupProfiler.mark("toolkit started");
         mainPane = new TimerView();
-        
+        StartupProfiler.mark("timer view created");
+        if (mainPane.resumeCheckpoint()) {
+            StartupProfiler.mark("checkpoint resumed");
+        }
         String title = mainPane.getAppProperties().getProperty("app.name") + " - " + mainPane.getAppProperties().getProperty("app.version");
         Scene scene = new Scene(mainPane, 500, 500);
         scene.getStylesheets().add(mainPane.getAppProperties().getProperty("app.css"));
@@ -45,6 +60,59 @@ public class Main extends Application {
             mainPane.onExitApp();
         });
         primaryStage.show();
+        StartupProfiler.mark("stage shown");
+        int mirrorWindows = Integer.parseInt(mainPane.getSetting("app.mirror.windows"));
+        for (int i = 0; i < mirrorWindows; i++) {
+            showMirrorWindow(title, i);
+        }
+        onFirstPulse();
+    }
+
+    /**
+     * Shows the timer once more, on the next screen if there is one, e.g. a
+     * projector.
+     */
+    private void showMirrorWindow(String title, int index) {
+        DialMirror mirror = mainPane.getDialMirror();
+        ImageView view = mirror.createView();
+        StackPane mirrorPane = new StackPane(view);
+        mirrorPane.getStyleClass().setAll("root-pane");
+        view.fitWidthProperty().bind(mirrorPane.widthProperty());
+        view.fitHeightProperty().bind(mirrorPane.heightProperty());
+        Scene scene = new Scene(mirrorPane, 500, 500);
+        scene.getStylesheets().add(mainPane.getAppProperties().getProperty("app.css"));
+        Stage mirrorStage = new Stage();
+        mirrorStage.setScene(scene);
+        mirrorStage.getIcons().add(new Image(getClass().getResourceAsStream(mainPane.getAppProperties().getProperty("app.icon"))));
+        mirrorStage.setTitle(title);
+        List<Screen> screens = Screen.getScreens();
+        if (screens.size() > 1) {
+            Rectangle2D bounds = screens.get(1 + index % (screens.size() - 1)).getVisualBounds();
+            mirrorStage.setX(bounds.getMinX());
+            mirrorStage.setY(bounds.getMinY());
+            mirrorStage.setMaximized(true);
+        }
+        mirrorStage.setOnHidden((WindowEvent event) -> {
+            mirror.removeView(view);
+        });
+        mirrorStage.show();
+    }
+
+    private void onFirstPulse() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                StartupProfiler.mark("first pulse");
+                if (Boolean.parseBoolean(mainPane.getSetting("app.startup.report"))) {
+                    StartupProfiler.report();
+                }
+                // used to record the class list of a plain startup, see the appCds task
+                if (Boolean.getBoolean("app.startup.exit")) {
+                    Platform.exit();
+                }
+            }
+        }.start();
     }
 
     public static void main(String[] args) {
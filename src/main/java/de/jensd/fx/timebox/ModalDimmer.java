@@ -18,6 +18,8 @@ public class ModalDimmer extends StackPane {
 
     private final Duration DURATION_HIDE = Duration.millis(700);
     private final Duration DURATION_SHOW = Duration.millis(350);
+    private Timeline hideTimeline;
+    private Timeline showTimeline;
 
     public ModalDimmer() {
         init();
@@ -27,11 +29,8 @@ public class ModalDimmer extends StackPane {
         setId("modal-dimmer");
         setOnMouseClicked(Event::consume);
         setVisible(false);
-    }
-
-    public void hideModalMessage() {
-        setCache(true);
-        Timeline timeline = new Timeline(
+        // created once, shown and hidden again and again
+        hideTimeline = new Timeline(
                 new KeyFrame(DURATION_HIDE, (ActionEvent t) -> {
                     setCache(false);
                     setVisible(false);
@@ -39,18 +38,24 @@ public class ModalDimmer extends StackPane {
                             clear();
                 },
                         new KeyValue(opacityProperty(), 0, Interpolator.EASE_BOTH)));
-        timeline.play();
+        showTimeline = new Timeline(new KeyFrame(DURATION_SHOW, (ActionEvent t) -> {
+            setCache(false);
+        }, new KeyValue(opacityProperty(), 1, Interpolator.EASE_BOTH)));
+    }
+
+    public void hideModalMessage() {
+        showTimeline.stop();
+        setCache(true);
+        hideTimeline.playFromStart();
     }
 
     public void showModalMessage(Node message) {
+        hideTimeline.stop();
         getChildren().clear();
         getChildren().add(message);
         setOpacity(0);
         setCache(true);
         setVisible(true);
-        Timeline timeline = new Timeline(new KeyFrame(DURATION_SHOW, (ActionEvent t) -> {
-            setCache(false);
-        }, new KeyValue(opacityProperty(), 1, Interpolator.EASE_BOTH)));
-        timeline.play();
+        showTimeline.playFromStart();
     }
 }
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the timer sessions back from a {@link SessionJournal} and computes
+ * how often and by how much they overran.
+ * <p>
+ * The journal segments are scanned in parallel. Sessions are rebuilt per
+ * segment, the ones crossing a segment boundary are completed when the
+ * partial results are merged in segment order. Only the sessions still open
+ * are kept, the finished ones go straight into the {@link OverrunStats}.
+ *
+ * @author Jens Deters
+ */
+public final class OverrunAnalytics {
+
+    private OverrunAnalytics() {
+    }
+
+    public static OverrunStats analyze(Path journalDirectory) throws IOException {
+        List<Path> segments = JournalReader.segments(journalDirectory);
+        try {
+            return segments.parallelStream().
+                    map(OverrunAnalytics::scan).
+                    reduce(Partial::merge).
+                    map((Partial partial) -> partial.stats).
+                    orElseGet(OverrunStats::new);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private static Partial scan(Path segment) {
+        Partial partial = new Partial();
+        try {
+            JournalReader.replaySegment(segment, partial::event);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return partial;
+    }
+
+    public static String report(OverrunStats stats) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-14s %9s %8s %10s %10s %10s %10s%n", "", "sessions", "overran", "mean", "p50", "p90", "p99"));
+        appendRow(report, "all", stats.getTotal());
+        report.append(String.format("%nby weekday%n"));
+        for (int i = 0; i < OverrunStats.WEEKDAY_LABELS.length; i++) {
+            appendRow(report, OverrunStats.WEEKDAY_LABELS[i], stats.getWeekday(i));
+        }
+        report.append(String.format("%nby planned length%n"));
+        for (int i = 0; i < OverrunStats.LENGTH_LABELS.length; i++) {
+            appendRow(report, OverrunStats.LENGTH_LABELS[i], stats.getLength(i));
+        }
+        report.append(String.format("%nby week%n"));
+        for (Map.Entry<Long, OverrunStats.Bucket> week : stats.getWeeks().entrySet()) {
+            appendRow(report, LocalDate.ofEpochDay(week.getKey()).toString(), week.getValue());
+        }
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String label, OverrunStats.Bucket bucket) {
+        report.append(String.format("%-14s %9d %7.1f%% %10s %10s %10s %10s%n", label,
+                bucket.getSessions(),
+                bucket.getOverranRatio() * 100,
+                formatMillis((long) bucket.getMeanOverrunMillis()),
+                formatMillis(bucket.getOverrunMillisAtPercentile(50)),
+                formatMillis(bucket.getOverrunMillisAtPercentile(90)),
+                formatMillis(bucket.getOverrunMillisAtPercentile(99))));
+    }
+
+    static String formatMillis(long millis) {
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(millis);
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /**
+     * Prints the overrun report of a journal, by default the one of the app.
+     */
+    public static void main(String[] args) throws IOException {
+        Path journalDirectory = args.length > 0 ? Paths.get(args[0]) : Paths.get(System.getProperty("user.home"), ".timeboxfx", "journal");
+        long start = System.nanoTime();
+        OverrunStats stats = analyze(journalDirectory);
+        System.out.print(report(stats));
+        System.out.printf("%n%d sessions analyzed in %d ms%n", stats.getTotal().getSessions(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static final class Session {
+
+        private final long start;
+        private final long plannedMillis;
+        private boolean overdue;
+
+        Session(long start, long plannedMillis) {
+            this.start = start;
+            this.plannedMillis = plannedMillis;
+        }
+
+        /**
+         * @return true if the event ends the session
+         */
+        boolean apply(long timestamp, JournalEvent event, long millisLeft, OverrunStats stats) {
+            switch (event) {
+                case OVERDUE:
+                    overdue = true;
+                    return false;
+                case FINISH:
+                    stats.addSession(start, plannedMillis, 0);
+                    return true;
+                case STOP:
+                    stats.addSession(start, plannedMillis, overdue ? Math.max(0, -millisLeft) : 0);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static final class Partial {
+
+        private final OverrunStats stats = new OverrunStats();
+        private final Map<Long, Session> open = new HashMap<>();
+        private final Set<Long> started = new HashSet<>();
+        // events of timers that had not been started yet in this part
+        private final Map<Long, List<long[]>> heads = new HashMap<>();
+
+        void event(long timestamp, long timerId, JournalEvent event, long durationMillis, long millisLeft) {
+            Session session = open.get(timerId);
+            if (event == JournalEvent.START) {
+                // a session still open at a new start has been abandoned
+                open.put(timerId, new Session(timestamp, durationMillis));
+                started.add(timerId);
+            } else if (session != null) {
+                if (session.apply(timestamp, event, millisLeft, stats)) {
+                    open.remove(timerId);
+                }
+            } else if (!started.contains(timerId)) {
+                List<long[]> events = heads.get(timerId);
+                if (events == null) {
+                    events = new ArrayList<>();
+                    heads.put(timerId, events);
+                }
+                events.add(new long[]{timestamp, event.ordinal(), millisLeft});
+            }
+        }
+
+        /**
+         * Appends a later part.
+         */
+        Partial merge(Partial later) {
+            for (Map.Entry<Long, List<long[]>> head : later.heads.entrySet()) {
+                Long timerId = head.getKey();
+                Session session = open.remove(timerId);
+                if (session != null) {
+                    boolean ended = false;
+                    for (long[] event : head.getValue()) {
+                        if (session.apply(event[0], JournalEvent.values()[(int) event[1]], event[2], stats)) {
+                            ended = true;
+                            break;
+                        }
+                    }
+                    if (!ended && !later.started.contains(timerId)) {
+                        open.put(timerId, session);
+                    }
+                } else if (!started.contains(timerId)) {
+                    List<long[]> events = heads.get(timerId);
+                    if (events == null) {
+                        heads.put(timerId, head.getValue());
+                    } else {
+                        events.addAll(head.getValue());
+                    }
+                }
+            }
+            for (Long timerId : later.started) {
+                open.remove(timerId);
+            }
+            open.putAll(later.open);
+            started.addAll(later.started);
+            stats.merge(later.stats);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overrun figures of finished timer sessions, broken down by weekday,
+ * planned length and week.
+ * <p>
+ * Every bucket keeps counters and a fixed size histogram only, so the memory
+ * needed does not grow with the number of sessions. Stats of disjoint sets
+ * of sessions can be merged.
+ *
+ * @author Jens Deters
+ */
+public class OverrunStats {
+
+    public static final String[] WEEKDAY_LABELS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+    public static final String[] LENGTH_LABELS = {"up to 5 min", "up to 10 min", "up to 15 min", "up to 30 min", "up to 45 min", "up to 60 min", "over 60 min"};
+
+    private static final long[] LENGTH_LIMITS = {5, 10, 15, 30, 45, 60};
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final Bucket total = new Bucket();
+    private final Bucket[] weekdays = new Bucket[WEEKDAY_LABELS.length];
+    private final Bucket[] lengths = new Bucket[LENGTH_LABELS.length];
+    private final TreeMap<Long, Bucket> weeks = new TreeMap<>();
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    public OverrunStats() {
+        for (int i = 0; i < weekdays.length; i++) {
+            weekdays[i] = new Bucket();
+        }
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = new Bucket();
+        }
+    }
+
+    /**
+     * @param start when the session started, epoch milliseconds
+     * @param plannedMillis the planned length
+     * @param overrunMillis how long it ran overdue, 0 if it did not
+     */
+    public void addSession(long start, long plannedMillis, long overrunMillis) {
+        long epochDay = Math.floorDiv(start + timeZone.getOffset(start), DAY_MILLIS);
+        // 1970-01-01 was a Thursday
+        int weekday = (int) Math.floorMod(epochDay + 3, 7L);
+        total.add(plannedMillis, overrunMillis);
+        weekdays[weekday].add(plannedMillis, overrunMillis);
+        lengths[lengthBucketOf(plannedMillis)].add(plannedMillis, overrunMillis);
+        Bucket week = weeks.get(epochDay - weekday);
+        if (week == null) {
+            week = new Bucket();
+            weeks.put(epochDay - weekday, week);
+        }
+        week.add(plannedMillis, overrunMillis);
+    }
+
+    public OverrunStats merge(OverrunStats other) {
+        total.merge(other.total);
+        for (int i = 0; i < weekdays.length; i++) {
+            weekdays[i].merge(other.weekdays[i]);
+        }
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i].merge(other.lengths[i]);
+        }
+        for (Map.Entry<Long, Bucket> week : other.weeks.entrySet()) {
+            Bucket bucket = weeks.get(week.getKey());
+            if (bucket == null) {
+                weeks.put(week.getKey(), week.getValue());
+            } else {
+                bucket.merge(week.getValue());
+            }
+        }
+        return this;
+    }
+
+    public Bucket getTotal() {
+        return total;
+    }
+
+    /**
+     * @param weekday 0 is Monday
+     */
+    public Bucket getWeekday(int weekday) {
+        return weekdays[weekday];
+    }
+
+    public Bucket getLength(int lengthBucket) {
+        return lengths[lengthBucket];
+    }
+
+    /**
+     * @return the sessions per week, keyed by the epoch day of its Monday
+     */
+    public Map<Long, Bucket> getWeeks() {
+        return weeks;
+    }
+
+    private static int lengthBucketOf(long plannedMillis) {
+        for (int i = 0; i < LENGTH_LIMITS.length; i++) {
+            if (plannedMillis <= TimeUnit.MINUTES.toMillis(LENGTH_LIMITS[i])) {
+                return i;
+            }
+        }
+        return LENGTH_LIMITS.length;
+    }
+
+    /**
+     * Sessions of one slice.
+     */
+    public static final class Bucket {
+
+        private final LatencyHistogram overruns = new LatencyHistogram();
+        private long sessions;
+        private long overran;
+        private long plannedMillis;
+
+        void add(long planned, long overrunMillis) {
+            sessions++;
+            plannedMillis += planned;
+            if (overrunMillis > 0) {
+                overran++;
+            }
+            overruns.record(overrunMillis);
+        }
+
+        void merge(Bucket other) {
+            sessions += other.sessions;
+            overran += other.overran;
+            plannedMillis += other.plannedMillis;
+            overruns.add(other.overruns);
+        }
+
+        public long getSessions() {
+            return sessions;
+        }
+
+        public long getOverran() {
+            return overran;
+        }
+
+        /**
+         * @return the share of sessions that ran overdue, 0.0 to 1.0
+         */
+        public double getOverranRatio() {
+            return sessions == 0 ? 0 : (double) overran / sessions;
+        }
+
+        public double getMeanOverrunMillis() {
+            return overruns.getMean();
+        }
+
+        public long getMaxOverrunMillis() {
+            return overruns.getMax();
+        }
+
+        /**
+         * @return the overrun at the percentile of all sessions, accurate to
+         * 12.5%
+         */
+        public long getOverrunMillisAtPercentile(double percentile) {
+            return overruns.getValueAtPercentile(percentile);
+        }
+
+        /**
+         * @return the time run overdue relative to the planned time
+         */
+        public double getOverrunRatio() {
+            return plannedMillis == 0 ? 0 : overruns.getMean() * sessions / plannedMillis;
+        }
+    }
+}
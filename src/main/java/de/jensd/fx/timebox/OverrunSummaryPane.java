@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIcon;
+import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIconView;
+import javafx.event.ActionEvent;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+/**
+ * Summary of the {@link OverrunStats} shown in the app.
+ *
+ * @author Jens Deters
+ */
+public class OverrunSummaryPane extends VBox {
+
+    private final OverrunStats stats;
+    private final Runnable onClose;
+
+    public OverrunSummaryPane(OverrunStats stats, Runnable onClose) {
+        this.stats = stats;
+        this.onClose = onClose;
+        init();
+    }
+
+    private void init() {
+        Button closeButton = new Button("");
+        closeButton.setGraphic(new MaterialDesignIconView(MaterialDesignIcon.WINDOW_CLOSE));
+        closeButton.getStyleClass().setAll("navigation-button");
+        closeButton.setOnAction((ActionEvent t) -> {
+            onClose.run();
+        });
+        HBox headerPane = new HBox(closeButton);
+        headerPane.setAlignment(Pos.TOP_RIGHT);
+        OverrunStats.Bucket total = stats.getTotal();
+        Label summaryLabel = new Label(String.format("%d sessions, %.0f%% ran overdue, by %s on average",
+                total.getSessions(),
+                total.getOverranRatio() * 100,
+                OverrunAnalytics.formatMillis((long) total.getMeanOverrunMillis())));
+        GridPane grid = new GridPane();
+        grid.setHgap(15);
+        grid.setAlignment(Pos.CENTER);
+        int row = 0;
+        grid.addRow(row++, new Label(""), darkLabel("sessions"), darkLabel("overran"), darkLabel("p90"));
+        for (int i = 0; i < OverrunStats.WEEKDAY_LABELS.length; i++) {
+            addRow(grid, row++, OverrunStats.WEEKDAY_LABELS[i], stats.getWeekday(i));
+        }
+        grid.addRow(row++, new Label(""));
+        for (int i = 0; i < OverrunStats.LENGTH_LABELS.length; i++) {
+            addRow(grid, row++, OverrunStats.LENGTH_LABELS[i], stats.getLength(i));
+        }
+        getChildren().addAll(headerPane, summaryLabel, grid);
+        setAlignment(Pos.TOP_CENTER);
+        setMaxWidth(400);
+        setMaxHeight(420);
+        setSpacing(10.0);
+        getStyleClass().setAll("modal-dimmer-dialog");
+    }
+
+    private static void addRow(GridPane grid, int row, String label, OverrunStats.Bucket bucket) {
+        if (bucket.getSessions() == 0) {
+            grid.addRow(row, new Label(label), new Label("-"));
+            return;
+        }
+        grid.addRow(row, new Label(label),
+                new Label(Long.toString(bucket.getSessions())),
+                new Label(String.format("%.0f%%", bucket.getOverranRatio() * 100)),
+                new Label(OverrunAnalytics.formatMillis(bucket.getOverrunMillisAtPercentile(90))));
+    }
+
+    private static Label darkLabel(String text) {
+        Label label = new Label(text);
+        label.getStyleClass().setAll("dark-label");
+        return label;
+    }
+}
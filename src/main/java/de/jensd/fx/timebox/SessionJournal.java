@@ -0,0 +1,305 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only journal of timer events in memory-mapped segment files.
+ * <p>
+ * Every event is a fixed size record of {@value #RECORD_SIZE} bytes:
+ * <pre>
+ *  0 long  wall clock time in epoch milliseconds
+ *  8 long  timer id
+ * 16 byte  event code, 0 marks an empty record
+ * 17 byte  reserved
+ * 18 short reserved
+ * 20 int   planned length of the box in milliseconds
+ * 24 long  milliseconds left at the event, negative while overdue
+ * </pre>
+ * Appending only reserves a slot with an atomic increment and writes into
+ * the mapped segment, so it never blocks on disk and may be called from any
+ * thread. A flusher thread forces written segments to disk in groups and
+ * maps the next segment ahead of time. Each run of the application starts a
+ * new segment.
+ *
+ * @author Jens Deters
+ */
+public class SessionJournal implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 32;
+    public static final int DEFAULT_SEGMENT_RECORDS = 32 * 1024;
+    public static final String SEGMENT_PREFIX = "journal-";
+    public static final String SEGMENT_SUFFIX = ".dat";
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int TIMER_ID_OFFSET = 8;
+    static final int EVENT_OFFSET = 16;
+    static final int DURATION_OFFSET = 20;
+    static final int MILLIS_LEFT_OFFSET = 24;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final long flushIntervalNanos;
+    private final Thread flusher;
+    private final Object rotationLock = new Object();
+    private volatile Segment current;
+    private volatile Segment next;
+    private volatile Segment retired;
+    private volatile boolean closed;
+    /**
+     * Set by {@link #close()} under the rotation lock, no segment is opened or
+     * rotated in from then on.
+     */
+    private boolean closing;
+    private long sequence;
+
+    public SessionJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS, 200);
+    }
+
+    /**
+     * @param directory where the segments are kept
+     * @param segmentRecords records per segment file
+     * @param flushIntervalMillis how often written records are forced to disk
+     */
+    public SessionJournal(Path directory, int segmentRecords, long flushIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        Files.createDirectories(directory);
+        sequence = JournalReader.lastSequence(directory);
+        current = openSegment(++sequence);
+        flusher = new Thread(this::runFlusher, "timebox-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Records every transition of the core as an event of the given timer.
+     */
+    public void attach(TimerCore core, long timerId) {
+        core.addListener((TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) -> {
+            JournalEvent event = JournalEvent.of(oldSnapshot, newSnapshot);
+            if (event == JournalEvent.START && oldSnapshot.isRunning()) {
+                // the next box of an agenda, the previous one ends with it
+                long now = core.getTimeSource().nanoTime();
+                append(timerId, oldSnapshot.getState() == TimerCore.State.OVERDUE ? JournalEvent.STOP : JournalEvent.FINISH,
+                        oldSnapshot.getDurationMillis(), oldSnapshot.millisLeft(now));
+            }
+            if (event != null) {
+                TimerSnapshot snapshot = newSnapshot.getState() == TimerCore.State.IDLE ? oldSnapshot : newSnapshot;
+                append(timerId, event, snapshot.getDurationMillis(), snapshot.millisLeft(core.getTimeSource().nanoTime()));
+            }
+        });
+    }
+
+    public void append(long timerId, JournalEvent event, long durationMillis, long millisLeft) {
+        long timestamp = System.currentTimeMillis();
+        while (!closed) {
+            Segment segment = current;
+            int slot = segment.reserved.getAndIncrement();
+            if (slot < segmentRecords) {
+                // absolute puts only, the buffer position is never touched
+                int offset = slot * RECORD_SIZE;
+                MappedByteBuffer buffer = segment.buffer;
+                buffer.putLong(offset + TIMESTAMP_OFFSET, timestamp);
+                buffer.putLong(offset + TIMER_ID_OFFSET, timerId);
+                buffer.putInt(offset + DURATION_OFFSET, (int) durationMillis);
+                buffer.putLong(offset + MILLIS_LEFT_OFFSET, millisLeft);
+                buffer.put(offset + EVENT_OFFSET, event.code());
+                segment.written.incrementAndGet();
+                return;
+            }
+            rotate(segment);
+        }
+    }
+
+    private void rotate(Segment full) {
+        synchronized (rotationLock) {
+            if (current != full || closing) {
+                return;
+            }
+            Segment segment = next;
+            next = null;
+            if (segment == null) {
+                try {
+                    segment = openSegment(++sequence);
+                } catch (IOException ex) {
+                    Logger.getLogger(SessionJournal.class.getName()).
+                            log(Level.SEVERE, null, ex);
+                    closed = true;
+                    return;
+                }
+            }
+            retired = full;
+            current = segment;
+        }
+        LockSupport.unpark(flusher);
+    }
+
+    private Segment openSegment(long segmentSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentSequence, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE));
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            flush();
+            synchronized (rotationLock) {
+                if (next == null && !closing && current.reserved.get() > segmentRecords / 2) {
+                    try {
+                        next = openSegment(++sequence);
+                    } catch (IOException ex) {
+                        Logger.getLogger(SessionJournal.class.getName()).
+                                log(Level.WARNING, null, ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces the written records to disk.
+     */
+    public void flush() {
+        Segment segment = retired;
+        if (segment != null) {
+            retired = null;
+            segment.force();
+        }
+        current.force();
+    }
+
+    /**
+     * Forces the written records to disk and cuts the segments down to them,
+     * a short run leaves a file of a few records rather than a whole segment.
+     * <p>
+     * Appending may go on concurrently: no slot is reserved once the segment
+     * is closed for it, and the files are only cut after the records already
+     * reserved have been written and the flusher has stopped. Later events
+     * are dropped.
+     */
+    @Override
+    public void close() {
+        Segment last;
+        Segment unused;
+        int records;
+        synchronized (rotationLock) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            closed = true;
+            last = current;
+            unused = next;
+            next = null;
+            records = last.closeReservations(segmentRecords);
+        }
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        last.awaitWritten(records);
+        flush();
+        last.truncate(records);
+        if (unused != null) {
+            unused.truncate(0);
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger reserved = new AtomicInteger();
+        private final AtomicInteger written = new AtomicInteger();
+        private int forced;
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Lets no further record be reserved, an appender gets a full segment
+         * from then on.
+         *
+         * @return the records reserved until then
+         */
+        int closeReservations(int segmentRecords) {
+            while (true) {
+                int records = reserved.get();
+                if (records >= segmentRecords) {
+                    return segmentRecords;
+                }
+                if (reserved.compareAndSet(records, segmentRecords)) {
+                    return records;
+                }
+            }
+        }
+
+        /**
+         * Waits for appenders still writing into reserved slots.
+         */
+        void awaitWritten(int records) {
+            while (written.get() < records) {
+                Thread.yield();
+            }
+        }
+
+        /**
+         * Cuts the file down to the given records, deletes it if there are
+         * none. Some platforms refuse this while the file is still mapped,
+         * the segment then keeps its full size.
+         */
+        void truncate(int records) {
+            try {
+                if (records == 0) {
+                    Files.delete(file);
+                } else {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        channel.truncate((long) records * RECORD_SIZE);
+                    }
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(SessionJournal.class.getName()).
+                        log(Level.FINE, "Segment not truncated: " + file, ex);
+            }
+        }
+
+        synchronized void force() {
+            int count = written.get();
+            if (count != forced) {
+                buffer.force();
+                forced = count;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The user settings, kept in a properties file and written behind.
+ * <p>
+ * A change only marks the store dirty and schedules one write a moment
+ * later, so a drag over the dial or rapid toggling end up in a single write.
+ * The file is replaced atomically by writing a temp file and renaming it, a
+ * kill leaves either the old or the new settings but never half a file.
+ *
+ * @author Jens Deters
+ */
+public class SettingsStore implements AutoCloseable {
+
+    public static final String FILE_NAME = "settings.properties";
+
+    private static final long WRITE_DELAY_MILLIS = 250;
+    private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private final Path file;
+    private final Properties settings = new Properties();
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor writer;
+
+    public SettingsStore(Path file) {
+        this.file = file;
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                settings.load(in);
+            } catch (IOException ex) {
+                Logger.getLogger(SettingsStore.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        writer = new ScheduledThreadPoolExecutor(1, (Runnable r) -> {
+            Thread thread = new Thread(r, "timebox-settings-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * @return true if no settings have been stored yet
+     */
+    public boolean isEmpty() {
+        return settings.isEmpty();
+    }
+
+    public String get(String key, String defaultValue) {
+        return settings.getProperty(key, defaultValue);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = settings.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = settings.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    public void put(String key, String value) {
+        if (Objects.equals(settings.setProperty(key, value), value)) {
+            return;
+        }
+        if (writeScheduled.compareAndSet(false, true)) {
+            writer.schedule(this::write, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void putBoolean(String key, boolean value) {
+        put(key, Boolean.toString(value));
+    }
+
+    public void putDouble(String key, double value) {
+        put(key, Double.toString(value));
+    }
+
+    /**
+     * Writes pending changes right away and stops the writer. Only waits for
+     * a write that is pending, which takes a few milliseconds.
+     */
+    @Override
+    public void close() {
+        if (writeScheduled.get()) {
+            writer.execute(this::write);
+        }
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        // changes made from now on schedule the next write
+        if (!writeScheduled.getAndSet(false)) {
+            return;
+        }
+        Properties snapshot = (Properties) settings.clone();
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(tempFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                snapshot.store(out, "TimeboxFX settings");
+                channel.force(true);
+            }
+            try {
+                Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(SettingsStore.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Collects the time of the startup phases and logs them as one report.
+ *
+ * @author Jens Deters
+ */
+public final class StartupProfiler {
+
+    private static final long START = System.nanoTime();
+    private static final List<String> PHASES = new ArrayList<>();
+    private static final List<Long> TIMES = new ArrayList<>();
+    private static boolean reported;
+
+    private StartupProfiler() {
+    }
+
+    /**
+     * Marks the end of a startup phase, may be called from any thread.
+     */
+    public static synchronized void mark(String phase) {
+        if (!reported) {
+            PHASES.add(phase);
+            TIMES.add(System.nanoTime());
+        }
+    }
+
+    /**
+     * Logs the phases once, later marks are ignored.
+     */
+    public static synchronized void report() {
+        if (reported) {
+            return;
+        }
+        reported = true;
+        StringBuilder report = new StringBuilder("Startup phases (ms since main class load):");
+        long previous = START;
+        for (int i = 0; i < PHASES.size(); i++) {
+            long time = TIMES.get(i);
+            report.append(String.format("%n  %-28s %8.1f %+8.1f", PHASES.get(i), (time - START) / 1e6, (time - previous) / 1e6));
+            previous = time;
+        }
+        Logger.getLogger(StartupProfiler.class.getName()).info(report.toString());
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes the transitions of a {@link TimerCore} to any number of
+ * {@link StateSubscriber}s.
+ * <p>
+ * One thread serves all subscribers from a non-blocking selector. A
+ * subscriber gets the current state when it connects and a
+ * {@link StateFrame} on every transition and change of the overdue setting
+ * after, never per tick. Frames are not queued: a subscriber too slow to take
+ * a frame gets the latest state once its socket is writable again.
+ *
+ * @author Jens Deters
+ */
+public class StateBroadcaster implements TimerListener, AutoCloseable {
+
+    private final InetSocketAddress address;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private TimerCore core;
+    private volatile boolean closed;
+    private long broadcastSequence;
+    private volatile int subscriberCount;
+
+    public StateBroadcaster(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public void attach(TimerCore core) {
+        this.core = core;
+        core.addListener(this);
+    }
+
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        Thread selectorThread = new Thread(this::run, "timebox-state-broadcaster");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * @return the address the subscribers connect to
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount;
+    }
+
+    @Override
+    public void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+        wakeup();
+    }
+
+    @Override
+    public void overdueOnChanged(boolean overdueOn) {
+        wakeup();
+    }
+
+    /**
+     * The core has published the change already, the selector thread picks
+     * it up.
+     */
+    private void wakeup() {
+        Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (core != null) {
+            core.removeListener(this);
+        }
+        closed = true;
+        if (selector != null) {
+            selector.wakeup();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                TimerCore.Published current = core.getPublished();
+                if (current.getSequence() != broadcastSequence) {
+                    broadcastSequence = current.getSequence();
+                    for (SelectionKey key : selector.keys()) {
+                        if (key.isValid() && key.attachment() != null) {
+                            send(key, current);
+                        }
+                    }
+                }
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(current);
+                        continue;
+                    }
+                    if (key.isReadable()) {
+                        read(key);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        send(key, current);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(StateBroadcaster.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key);
+            }
+            try {
+                selector.close();
+            } catch (IOException ex) {
+                Logger.getLogger(StateBroadcaster.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    private void accept(TimerCore.Published current) throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ, new Subscriber());
+            subscriberCount++;
+            send(key, current);
+        }
+    }
+
+    private void send(SelectionKey key, TimerCore.Published current) {
+        Subscriber subscriber = (Subscriber) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            while (true) {
+                if (!subscriber.out.hasRemaining()) {
+                    if (subscriber.sentSequence == current.getSequence()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        return;
+                    }
+                    subscriber.out.clear();
+                    StateFrame.encode(subscriber.out, current.getSequence(), current.getSnapshot(), current.isOverdueOn(),
+                            System.nanoTime());
+                    subscriber.out.flip();
+                    subscriber.sentSequence = current.getSequence();
+                }
+                channel.write(subscriber.out);
+                if (subscriber.out.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException ex) {
+            closeQuietly(key);
+        }
+    }
+
+    private void read(SelectionKey key) {
+        // subscribers do not send anything, reading only notices them leave
+        Subscriber subscriber = (Subscriber) key.attachment();
+        try {
+            subscriber.in.clear();
+            if (((SocketChannel) key.channel()).read(subscriber.in) < 0) {
+                closeQuietly(key);
+            }
+        } catch (IOException ex) {
+            closeQuietly(key);
+        }
+    }
+
+    private void closeQuietly(SelectionKey key) {
+        if (key.attachment() != null && key.isValid()) {
+            subscriberCount--;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ex) {
+            Logger.getLogger(StateBroadcaster.class.getName()).log(Level.FINE, null, ex);
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final ByteBuffer out = (ByteBuffer) ByteBuffer.allocate(StateFrame.SIZE).flip();
+        private final ByteBuffer in = ByteBuffer.allocate(64);
+        private long sentSequence = -1;
+    }
+}
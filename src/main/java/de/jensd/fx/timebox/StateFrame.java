@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import de.jensd.fx.timebox.TimerCore.State;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The binary frame a {@link StateBroadcaster} sends on every transition.
+ * <p>
+ * Deadlines are {@link System#nanoTime()} values and mean nothing on another
+ * machine, so a frame carries the time left when it was sent. The receiver
+ * turns it back into a deadline of its own clock.
+ * <pre>
+ *  0  version         byte
+ *  1  state           byte, ordinal of {@link State}
+ *  2  flags           byte, 1 = overdue, 2 = overdue allowed
+ *  3  reserved        byte
+ *  4  duration        int, milliseconds
+ *  8  time left       long, nanoseconds, negative while overdue
+ * 16  sequence        long
+ * </pre>
+ *
+ * @author Jens Deters
+ */
+final class StateFrame {
+
+    static final int SIZE = 24;
+    static final byte VERSION = 1;
+
+    private static final int FLAG_OVERDUE = 1;
+    private static final int FLAG_OVERDUE_ON = 2;
+    private static final State[] STATES = State.values();
+
+    private StateFrame() {
+    }
+
+    static void encode(ByteBuffer buffer, long sequence, TimerSnapshot snapshot, boolean overdueOn, long now) {
+        long nanosLeft;
+        switch (snapshot.getState()) {
+            case NORMAL:
+            case OVERDUE:
+                nanosLeft = snapshot.getDeadline() - now;
+                break;
+            case PAUSED:
+                nanosLeft = snapshot.getDeadline() - snapshot.getPausedAt();
+                break;
+            default:
+                nanosLeft = 0;
+        }
+        buffer.put(VERSION);
+        buffer.put((byte) snapshot.getState().ordinal());
+        buffer.put((byte) ((snapshot.isOverdue() ? FLAG_OVERDUE : 0) | (overdueOn ? FLAG_OVERDUE_ON : 0)));
+        buffer.put((byte) 0);
+        buffer.putInt((int) snapshot.getDurationMillis());
+        buffer.putLong(nanosLeft);
+        buffer.putLong(sequence);
+    }
+
+    /**
+     * Reads the snapshot of the frame at the buffer position, its deadline
+     * counted from {@code now}.
+     */
+    static TimerSnapshot decode(ByteBuffer frame, long now) throws IOException {
+        int start = frame.position();
+        if (frame.get(start) != VERSION) {
+            throw new IOException("Unsupported frame version " + frame.get(start));
+        }
+        int stateIndex = frame.get(start + 1);
+        if (stateIndex < 0 || stateIndex >= STATES.length) {
+            throw new IOException("Unknown timer state " + stateIndex);
+        }
+        State state = STATES[stateIndex];
+        boolean overdue = (frame.get(start + 2) & FLAG_OVERDUE) != 0;
+        long durationMillis = frame.getInt(start + 4);
+        long nanosLeft = frame.getLong(start + 8);
+        switch (state) {
+            case IDLE:
+                return TimerSnapshot.IDLE;
+            case PAUSED:
+                return new TimerSnapshot(state, overdue, durationMillis, now + nanosLeft, now);
+            default:
+                return new TimerSnapshot(state, overdue, durationMillis, now + nanosLeft, 0);
+        }
+    }
+
+    /**
+     * @return the state of the frame at the buffer position, IDLE if unknown
+     */
+    static State state(ByteBuffer frame) {
+        int stateIndex = frame.get(frame.position() + 1);
+        return stateIndex < 0 || stateIndex >= STATES.length ? State.IDLE : STATES[stateIndex];
+    }
+
+    static boolean isOverdueOn(ByteBuffer frame) {
+        return (frame.get(frame.position() + 2) & FLAG_OVERDUE_ON) != 0;
+    }
+
+    static long sequence(ByteBuffer frame) {
+        return frame.getLong(frame.position() + 16);
+    }
+}
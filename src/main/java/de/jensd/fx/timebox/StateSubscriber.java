@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows the timer of a {@link StateBroadcaster}.
+ * <p>
+ * Every frame received is turned into a snapshot against the local clock and
+ * handed to {@link TimerCore#follow(TimerSnapshot)}, from there on the local
+ * clock work counts down by itself until the next transition. Lost
+ * connections are retried until the subscriber is closed.
+ *
+ * @author Jens Deters
+ */
+public class StateSubscriber implements AutoCloseable {
+
+    private static final long RECONNECT_MILLIS = 2000;
+
+    private final InetSocketAddress leader;
+    private final TimerCore core;
+    private final Executor executor;
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+
+    /**
+     * @param leader the address of the broadcaster
+     * @param core the timer that follows
+     * @param executor runs the updates of the core on the thread driving it,
+     * e.g. {@code Platform::runLater}
+     */
+    public StateSubscriber(InetSocketAddress leader, TimerCore core, Executor executor) {
+        this.leader = leader;
+        this.core = core;
+        this.executor = executor;
+    }
+
+    public void start() {
+        Thread subscriberThread = new Thread(this::run, "timebox-state-subscriber");
+        subscriberThread.setDaemon(true);
+        subscriberThread.start();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        SocketChannel currentChannel = channel;
+        if (currentChannel != null) {
+            try {
+                currentChannel.close();
+            } catch (IOException ex) {
+                Logger.getLogger(StateSubscriber.class.getName()).log(Level.FINE, null, ex);
+            }
+        }
+    }
+
+    private void run() {
+        ByteBuffer frame = ByteBuffer.allocate(StateFrame.SIZE);
+        while (!closed) {
+            try (SocketChannel socketChannel = SocketChannel.open()) {
+                channel = socketChannel;
+                socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+                // resolved again on every attempt, the leader may come up later
+                InetSocketAddress address = leader.isUnresolved() ? new InetSocketAddress(leader.getHostString(), leader.getPort()) : leader;
+                if (address.isUnresolved()) {
+                    throw new IOException("Unknown host " + leader.getHostString());
+                }
+                socketChannel.connect(address);
+                while (!closed) {
+                    frame.clear();
+                    while (frame.hasRemaining()) {
+                        if (socketChannel.read(frame) < 0) {
+                            throw new EOFException("Broadcaster closed the connection");
+                        }
+                    }
+                    frame.flip();
+                    TimerSnapshot snapshot = StateFrame.decode(frame, System.nanoTime());
+                    boolean overdueOn = StateFrame.isOverdueOn(frame);
+                    executor.execute(() -> {
+                        core.setOverdueOn(overdueOn);
+                        core.follow(snapshot);
+                    });
+                }
+            } catch (IOException ex) {
+                if (!closed) {
+                    Logger.getLogger(StateSubscriber.class.getName()).
+                            log(Level.INFO, "Not connected to {0}, retrying", leader);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(RECONNECT_MILLIS);
+                    } catch (InterruptedException iex) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+/**
+ * Where a {@link TimerCore} takes the time from.
+ * <p>
+ * Values are nanoseconds from an arbitrary origin like
+ * {@link System#nanoTime()}, only differences between them have a meaning.
+ *
+ * @author Jens Deters
+ */
+public interface TimeSource {
+
+    /**
+     * The time of the JVM, {@link System#nanoTime()}.
+     */
+    TimeSource SYSTEM = System::nanoTime;
+
+    long nanoTime();
+}
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import de.jensd.fx.timebox.TimerCore.State;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the state of the timer in a small memory-mapped file, so a box
+ * survives a killed or crashed application.
+ * <p>
+ * Only transitions and changes of the overdue setting are written, never
+ * ticks. Each write goes into the older of two slots of {@value #SLOT_SIZE}
+ * bytes:
+ * <pre>
+ *  0  written         long, wall clock time in epoch milliseconds
+ *  8  state           a {@link StateFrame}, its sequence tells the newer slot
+ * 32  checksum        int, CRC32 of the bytes above
+ * 36  reserved        int
+ * </pre>
+ * The written time plus the time left of the frame is the deadline on the
+ * wall clock, so the box goes on where it would be had the application kept
+ * running. A write torn by a crash fails the checksum and the other slot is
+ * used. Written pages are kept by the operating system when the process
+ * dies, they are only forced to disk on close, a crash of the whole machine
+ * may lose the last transition.
+ *
+ * @author Jens Deters
+ */
+public class TimerCheckpoint implements TimerListener, AutoCloseable {
+
+    public static final String FILE_NAME = "checkpoint.dat";
+
+    static final int SLOT_SIZE = 40;
+
+    // a box left over from yesterday is not worth resuming
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(12);
+    private static final int FRAME_OFFSET = 8;
+    private static final int CHECKSUM_OFFSET = FRAME_OFFSET + StateFrame.SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+    private final CRC32 checksum = new CRC32();
+    private final ByteBuffer saved;
+    private long sequence;
+    private TimerCore core;
+
+    /**
+     * Opens the checkpoint file, creating it if needed, and reads the state
+     * last written into it.
+     */
+    public TimerCheckpoint(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * SLOT_SIZE);
+        ByteBuffer first = readSlot(0);
+        ByteBuffer second = readSlot(1);
+        if (first == null || (second != null && sequence(second) > sequence(first))) {
+            saved = second;
+        } else {
+            saved = first;
+        }
+        sequence = saved == null ? 0 : sequence(saved);
+    }
+
+    /**
+     * Whether the saved box was to count on past its end.
+     *
+     * @return false if nothing was saved
+     */
+    public boolean isSavedOverdueOn() {
+        return saved != null && StateFrame.isOverdueOn(frame(saved));
+    }
+
+    /**
+     * The box that was running or paused when the checkpoint was last written.
+     *
+     * @param now the {@link TimeSource} time the deadline is counted from
+     * @return null if there is nothing to resume
+     */
+    public TimerSnapshot getSaved(long now) {
+        if (saved == null) {
+            return null;
+        }
+        ByteBuffer frame = frame(saved);
+        State state = StateFrame.state(frame);
+        long elapsedMillis = Math.max(0, System.currentTimeMillis() - saved.getLong(0));
+        if ((state != State.NORMAL && state != State.OVERDUE && state != State.PAUSED)
+                || elapsedMillis > MAX_AGE_MILLIS) {
+            return null;
+        }
+        try {
+            // a paused box has lost no time, a running one counts on from when it was written
+            return StateFrame.decode(frame, state == State.PAUSED ? now : now - TimeUnit.MILLISECONDS.toNanos(elapsedMillis));
+        } catch (IOException ex) {
+            Logger.getLogger(TimerCheckpoint.class.getName()).log(Level.WARNING, "Checkpoint not readable", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Writes every transition of the core from now on, and the box again
+     * when the overdue setting changes while it runs.
+     */
+    public void attach(TimerCore core) {
+        this.core = core;
+        core.addListener(this);
+    }
+
+    @Override
+    public void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+        write(newSnapshot, core.isOverdueOn(), core.getTimeSource().nanoTime());
+    }
+
+    @Override
+    public void overdueOnChanged(boolean overdueOn) {
+        // without a box there is nothing to resume
+        if (core.getState() != State.IDLE) {
+            write(core.getSnapshot(), overdueOn, core.getTimeSource().nanoTime());
+        }
+    }
+
+    /**
+     * Nothing is resumed after a regular exit.
+     */
+    @Override
+    public void close() {
+        write(TimerSnapshot.IDLE, false, 0);
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            Logger.getLogger(TimerCheckpoint.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void write(TimerSnapshot snapshot, boolean overdueOn, long now) {
+        sequence++;
+        slot.clear();
+        slot.putLong(System.currentTimeMillis());
+        StateFrame.encode(slot, sequence, snapshot, overdueOn, now);
+        checksum.reset();
+        checksum.update(slot.array(), 0, CHECKSUM_OFFSET);
+        slot.putInt((int) checksum.getValue());
+        slot.putInt(0);
+        slot.flip();
+        buffer.position((int) (sequence & 1) * SLOT_SIZE);
+        buffer.put(slot);
+    }
+
+    private ByteBuffer readSlot(int index) {
+        byte[] bytes = new byte[SLOT_SIZE];
+        buffer.position(index * SLOT_SIZE);
+        buffer.get(bytes);
+        ByteBuffer read = ByteBuffer.wrap(bytes);
+        checksum.reset();
+        checksum.update(bytes, 0, CHECKSUM_OFFSET);
+        if (read.getInt(CHECKSUM_OFFSET) != (int) checksum.getValue() || read.get(FRAME_OFFSET) != StateFrame.VERSION) {
+            // never written, torn or from another version
+            return null;
+        }
+        return read;
+    }
+
+    private static ByteBuffer frame(ByteBuffer slot) {
+        ByteBuffer frame = slot.duplicate();
+        frame.position(FRAME_OFFSET);
+        return frame;
+    }
+
+    private static long sequence(ByteBuffer slot) {
+        return StateFrame.sequence(frame(slot));
+    }
+}
@@ -13,10 +13,9 @@
  */
 package de.jensd.fx.timebox;
 
-import java.util.Calendar;
-import java.util.GregorianCalendar;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import de.jensd.fx.timebox.TimerCore.State;
+import javafx.animation.AnimationTimer;
+import javafx.beans.Observable;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.LongProperty;
@@ -26,12 +25,23 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleLongProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.value.ObservableValue;
-import javafx.event.ActionEvent;
-import javafx.event.Event;
-import javafx.event.EventHandler;
-import javafx.util.Duration;
 
 /**
+ * JavaFX adapter of a {@link TimerCore}.
+ * <p>
+ * Samples the core once per pulse and mirrors its state into observable
+ * properties. Consumers that do not need the properties should use
+ * {@link #getCore()} directly.
+ * <p>
+ * When created with a {@link TimerWheel} no pulse is requested at all, the
+ * properties are updated by the wheel once per displayed second instead. A
+ * clock work created by {@link #driven(TimerCore)} is updated by whoever
+ * calls {@link #tick()}, e.g. a simulation moving a {@link VirtualClock}.
+ * <p>
+ * The properties belong to the FX application thread. Other threads read
+ * {@link #getClockFace()}, what the display shows, all of it taken from the
+ * same tick or animation frame. The state of the timer itself is
+ * {@link TimerCore#getPublished()}.
  *
  * @author Jens Deters
  */
@@ -44,12 +54,18 @@ public class TimerClockWork {
     private BooleanProperty finished;
     private BooleanProperty running;
     private IntegerProperty startTime;
-    private Calendar calendar;
-    private Timeline timeline;
     private BooleanProperty overdueRunning;
     private BooleanProperty overdue;
-    private Timeline overdueTimeline;
     private ObjectProperty<Mode> mode;
+    private TimerCore core;
+    private AnimationTimer clock;
+    private TimerWheel wheel;
+    private boolean driven;
+    private TimerWheel.Timeout pendingUpdate;
+    private TimerMetrics metrics;
+    private long lastPulse;
+    private volatile long clockFace = ClockFace.IDLE;
+    private boolean inTransition;
 
     public enum Mode {
 
@@ -57,9 +73,34 @@ public class TimerClockWork {
     }
 
     public TimerClockWork() {
+        this(new TimerCore());
+    }
+
+    public TimerClockWork(TimerCore core) {
+        this(core, null);
+    }
+
+    /**
+     * @param core the timer to adapt
+     * @param wheel a wheel dispatching on the FX application thread, e.g.
+     * {@code new TimerWheel(Platform::runLater)}, or null to use a pulse
+     */
+    public TimerClockWork(TimerCore core, TimerWheel wheel) {
+        this.core = core;
+        this.wheel = wheel;
         init();
     }
 
+    /**
+     * Creates a clock work without a clock of its own, it only updates when
+     * {@link #tick()} is called. Runs without the JavaFX toolkit.
+     */
+    static TimerClockWork driven(TimerCore core) {
+        TimerClockWork clockWork = new TimerClockWork(core, null);
+        clockWork.driven = true;
+        return clockWork;
+    }
+
     private void init() {
         minutes = new SimpleIntegerProperty(0);
         seconds = new SimpleIntegerProperty(0);
@@ -69,14 +110,44 @@ public class TimerClockWork {
         running = new SimpleBooleanProperty(Boolean.FALSE);
         overdue = new SimpleBooleanProperty(Boolean.TRUE);
         overdueRunning = new SimpleBooleanProperty(Boolean.FALSE);
-        running = new SimpleBooleanProperty(Boolean.FALSE);
         startTime = new SimpleIntegerProperty(0);
-        calendar = new GregorianCalendar();
         mode = new SimpleObjectProperty<>();
         mode.set(Mode.NORMAL);
+        core.setOverdueOn(overdue.get());
+        overdue.addListener((ObservableValue<? extends Boolean> ov, Boolean t, Boolean t1) -> {
+            core.setOverdueOn(t1);
+        });
+        // ticks and the start and stop animations change the time left, a
+        // transition is published once all its properties are set
+        milliSecondsLeft.addListener((Observable observable) -> {
+            if (!inTransition) {
+                publishClockFace();
+            }
+        });
+        core.addListener(this::stateChanged);
         //attachDebugOutput();
     }
 
+    public TimerCore getCore() {
+        return core;
+    }
+
+    /**
+     * @param metrics records tick latency and drift, null to record nothing
+     */
+    public void setMetrics(TimerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * What the properties show, consistent and readable from any thread.
+     *
+     * @return the face packed as described by {@link ClockFace}
+     */
+    public long getClockFace() {
+        return clockFace;
+    }
+
     public BooleanProperty overdueOnProperty() {
         return overdue;
     }
@@ -133,47 +204,96 @@ public class TimerClockWork {
     }
 
     public void start() {
-        mode.set(Mode.NORMAL);
-        overdueRunning.set(Boolean.FALSE);
-        calendar.setTimeInMillis(startTime.get());
-        milliSecondsLeft.set(calendar.getTimeInMillis());
-        milliSeconds.set(calendar.get(Calendar.MILLISECOND));
-        seconds.set(calendar.get(Calendar.SECOND));
-        minutes.set(calendar.get(Calendar.MINUTE));
-        finished.set(Boolean.FALSE);
-        running.set(Boolean.TRUE);
-        timeline = new Timeline(new KeyFrame(Duration.millis(1), tick()));
-        timeline.setCycleCount(startTime.get());
-        timeline.setOnFinished(finished());
-        continuePlay();
+        core.setDurationMillis(startTime.get());
+        core.start();
     }
 
     public void continuePlay() {
-        if (timeline != null) {
-            timeline.play();
-        }
-
+        core.resume();
     }
 
     public void pause() {
-        if (timeline != null) {
-            timeline.pause();
-        }
+        core.pause();
     }
 
     public void stop() {
-        if (timeline != null) {
-            reset();
-        }
+        core.stop();
     }
 
     public void reset() {
-        if (timeline != null) {
-            timeline.stop();
-        }
-        if (overdueTimeline != null) {
-            overdueTimeline.stop();
+        core.stop();
+        resetProperties();
+    }
+
+    private void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+        State oldState = oldSnapshot.getState();
+        inTransition = true;
+        switch (newSnapshot.getState()) {
+            case IDLE:
+                stopClock();
+                resetProperties();
+                break;
+            case NORMAL:
+                // a new box unless it continues a paused one, e.g. started while paused overdue
+                if (oldState != State.PAUSED || oldSnapshot.isOverdue()) {
+                    mode.set(Mode.NORMAL);
+                    overdueRunning.set(Boolean.FALSE);
+                    updateTime(newSnapshot.getDurationMillis());
+                    finished.set(Boolean.FALSE);
+                    running.set(Boolean.TRUE);
+                }
+                startClock();
+                break;
+            case OVERDUE:
+                if (oldState == State.NORMAL) {
+                    recordDrift(oldSnapshot);
+                    updateTime(0);
+                    finished.set(Boolean.TRUE);
+                    running.set(Boolean.FALSE);
+                    mode.set(Mode.OVERDUE);
+                    finished.set(Boolean.FALSE);
+                    running.set(Boolean.TRUE);
+                    overdueRunning.set(Boolean.TRUE);
+                } else if (oldState != State.PAUSED || !oldSnapshot.isOverdue()) {
+                    // joined an overdue timer, e.g. when following another one
+                    mode.set(Mode.OVERDUE);
+                    finished.set(Boolean.FALSE);
+                    running.set(Boolean.TRUE);
+                    overdueRunning.set(Boolean.TRUE);
+                }
+                startClock();
+                break;
+            case PAUSED:
+                // no change when pausing the running box, a paused timer may be joined from any state though
+                mode.set(newSnapshot.isOverdue() ? Mode.OVERDUE : Mode.NORMAL);
+                finished.set(Boolean.FALSE);
+                running.set(Boolean.TRUE);
+                overdueRunning.set(newSnapshot.isOverdue());
+                stopClock();
+                updateTime(core.millisLeft());
+                break;
+            case FINISHED:
+                recordDrift(oldSnapshot);
+                stopClock();
+                updateTime(0);
+                finished.set(Boolean.TRUE);
+                running.set(Boolean.FALSE);
+                break;
         }
+        inTransition = false;
+        publishClockFace();
+    }
+
+    /**
+     * Packs the properties into one value, once they all belong to the same
+     * tick.
+     */
+    private void publishClockFace() {
+        clockFace = ClockFace.pack(core.getState(), running.get(), finished.get(), mode.get(),
+                overdueRunning.get(), milliSecondsLeft.get());
+    }
+
+    private void resetProperties() {
         milliSeconds.set(0);
         minutes.set(0);
         seconds.set(0);
@@ -183,37 +303,104 @@ public class TimerClockWork {
         mode.set(Mode.NORMAL);
     }
 
-    private EventHandler finished() {
-        return (EventHandler<ActionEvent>) (ActionEvent t) -> {
-            finished.set(Boolean.TRUE);
-            running.set(Boolean.FALSE);
-            if (overdue.get()) {
-                startOverdue();
+    private void recordDrift(TimerSnapshot expiredSnapshot) {
+        if (metrics != null) {
+            metrics.recordDrift(core.getTimeSource().nanoTime() - expiredSnapshot.getDeadline());
+        }
+    }
+
+    private void startClock() {
+        if (driven) {
+            return;
+        }
+        if (wheel == null) {
+            lastPulse = 0;
+            getClock().start();
+        } else {
+            scheduleUpdate();
+        }
+    }
+
+    private void stopClock() {
+        if (driven) {
+            return;
+        }
+        if (wheel == null) {
+            if (clock != null) {
+                clock.stop();
             }
-        };
+        } else if (pendingUpdate != null) {
+            pendingUpdate.cancel();
+            pendingUpdate = null;
+        }
     }
 
-    private void startOverdue() {
-        mode.set(Mode.OVERDUE);
-        calendar.setTimeInMillis(0);
-        seconds.set(calendar.get(Calendar.SECOND));
-        minutes.set(calendar.get(Calendar.MINUTE));
-        finished.set(Boolean.FALSE);
-        running.set(Boolean.TRUE);
-        overdueRunning.set(Boolean.TRUE);
-        overdueTimeline = new Timeline(new KeyFrame(Duration.millis(1), tick()));
-        overdueTimeline.setCycleCount(600000);
-        overdueTimeline.play();
-    }
-
-    private EventHandler tick() {
-        return (EventHandler) (Event event) -> {
-            calendar.setTimeInMillis(calendar.getTimeInMillis() - 1);
-            milliSecondsLeft.set(calendar.getTimeInMillis());
-            milliSeconds.set(calendar.get(Calendar.MILLISECOND));
-            seconds.set(calendar.get(Calendar.SECOND));
-            minutes.set(calendar.get(Calendar.MINUTE));
-        };
+    private void scheduleUpdate() {
+        if (pendingUpdate != null) {
+            pendingUpdate.cancel();
+        }
+        // next time the displayed second changes, the last one is the deadline itself
+        long deadline = core.getSnapshot().getDeadline();
+        long now = core.getTimeSource().nanoTime();
+        long secondsLeft = Math.floorDiv(deadline - now, 1_000_000_000L);
+        long delay = deadline - secondsLeft * 1_000_000_000L + 1 - now;
+        // the wheel runs on System.nanoTime(), the core on its own time source
+        pendingUpdate = wheel.schedule(this::onScheduledUpdate, System.nanoTime() + delay);
+    }
+
+    private void onScheduledUpdate() {
+        pendingUpdate = null;
+        tick();
+        if (core.isRunning() && pendingUpdate == null) {
+            scheduleUpdate();
+        }
+    }
+
+    private AnimationTimer getClock() {
+        if (clock == null) {
+            clock = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    if (metrics != null) {
+                        long pulse = System.nanoTime();
+                        if (lastPulse != 0) {
+                            metrics.recordTickInterval(pulse - lastPulse);
+                        }
+                        lastPulse = pulse;
+                    }
+                    tick();
+                }
+            };
+        }
+        return clock;
+    }
+
+    /**
+     * One pulse worth of work, package visible for the benchmarks and the
+     * simulation.
+     */
+    void tick() {
+        long start = metrics != null ? System.nanoTime() : 0;
+        long millisLeft = core.update();
+        if (core.isRunning()) {
+            // published by the listener on the time left
+            updateTime(millisLeft);
+        }
+        if (metrics != null) {
+            metrics.recordListenerTime(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Splits the time left into minutes, seconds and milliseconds. Negative
+     * values (overdue) are split like a clock running backwards past zero,
+     * e.g. -1 ms reads 59:59.999.
+     */
+    private void updateTime(long millisLeft) {
+        milliSecondsLeft.set(millisLeft);
+        milliSeconds.set((int) Math.floorMod(millisLeft, 1000L));
+        seconds.set((int) Math.floorMod(Math.floorDiv(millisLeft, 1000L), 60L));
+        minutes.set((int) Math.floorMod(Math.floorDiv(millisLeft, 60000L), 60L));
     }
 
     private void attachDebugOutput() {
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Toolkit-free timebox engine.
+ * <p>
+ * Keeps the countdown as an explicit state machine against a deadline of
+ * its {@link TimeSource}, {@link System#nanoTime()} unless another one is
+ * given. Nothing is counted per tick: the time left is derived from the
+ * current {@link TimerSnapshot} whenever it is asked for, and
+ * {@link #update()} only has to be called often enough to notice that the
+ * deadline has passed. With a {@link VirtualClock} the timer runs as fast as
+ * it is updated.
+ * <p>
+ * A TimerCore is not thread-safe, all calls are expected to come from the
+ * thread that drives it. Only {@link #getPublished()} may be read from any
+ * thread, it is immutable and replaced on every transition.
+ *
+ * @author Jens Deters
+ */
+public class TimerCore {
+
+    public enum State {
+
+        IDLE, NORMAL, OVERDUE, PAUSED, FINISHED;
+    }
+
+    /**
+     * Decides what follows a timebox that ran out, e.g. the next item of an
+     * {@link Agenda}.
+     */
+    public interface Successor {
+
+        /**
+         * @param expired the snapshot whose deadline has passed
+         * @return the snapshot to continue with, null to let the timebox run
+         * out as usual
+         */
+        TimerSnapshot next(TimerSnapshot expired);
+    }
+
+    /**
+     * What a core has published, for readers on other threads such as the
+     * status server or the state broadcaster: the snapshot, whether overdue
+     * was on, and a sequence counting the transitions and changes of the
+     * overdue setting.
+     */
+    public static final class Published {
+
+        private final long sequence;
+        private final TimerSnapshot snapshot;
+        private final boolean overdueOn;
+
+        Published(long sequence, TimerSnapshot snapshot, boolean overdueOn) {
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+            this.overdueOn = overdueOn;
+        }
+
+        /**
+         * @return 1 for the state a core starts with, one more for every
+         * transition or change of the overdue setting after
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public TimerSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public boolean isOverdueOn() {
+            return overdueOn;
+        }
+    }
+
+    private static final long FOLLOW_TOLERANCE_MILLIS = 50;
+
+    private final List<TimerListener> listeners = new CopyOnWriteArrayList<>();
+    private final TimeSource timeSource;
+    private TimerSnapshot snapshot = TimerSnapshot.IDLE;
+    private volatile Published published = new Published(1, TimerSnapshot.IDLE, false);
+    private long durationMillis;
+    private boolean overdueOn;
+    private Successor successor;
+
+    public TimerCore() {
+        this(TimeSource.SYSTEM);
+    }
+
+    public TimerCore(TimeSource timeSource) {
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * @return the time source the deadlines refer to
+     */
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    public void addListener(TimerListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(TimerListener listener) {
+        listeners.remove(listener);
+    }
+
+    public TimerSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * The state as of the last transition, readable from any thread.
+     */
+    public Published getPublished() {
+        return published;
+    }
+
+    public State getState() {
+        return snapshot.getState();
+    }
+
+    public boolean isRunning() {
+        return snapshot.isRunning();
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public void setDurationMillis(long durationMillis) {
+        this.durationMillis = durationMillis;
+    }
+
+    public boolean isOverdueOn() {
+        return overdueOn;
+    }
+
+    /**
+     * Takes effect when the running box expires. Published right away with
+     * the next sequence, followers decide on their own whether their box goes
+     * overdue, and passed on to {@link TimerListener#overdueOnChanged(boolean)}.
+     */
+    public void setOverdueOn(boolean overdueOn) {
+        if (this.overdueOn != overdueOn) {
+            this.overdueOn = overdueOn;
+            published = new Published(published.getSequence() + 1, snapshot, overdueOn);
+            for (TimerListener listener : listeners) {
+                listener.overdueOnChanged(overdueOn);
+            }
+        }
+    }
+
+    public void setSuccessor(Successor successor) {
+        this.successor = successor;
+    }
+
+    /**
+     * Starts a timebox that runs out at a given deadline rather than
+     * {@link #getDurationMillis()} from now.
+     *
+     * @param deadline the {@link #getTimeSource()} time the timebox runs out
+     * at
+     * @param durationMillis the planned length of the timebox
+     */
+    public void startUntil(long deadline, long durationMillis) {
+        publish(new TimerSnapshot(State.NORMAL, false, durationMillis, deadline, 0));
+    }
+
+    public void start() {
+        long now = nanoTime();
+        publish(new TimerSnapshot(State.NORMAL, false, durationMillis, now + durationMillis * 1_000_000L, 0));
+    }
+
+    public void pause() {
+        if (snapshot.isRunning()) {
+            publish(snapshot.pausedAt(nanoTime()));
+        }
+    }
+
+    public void resume() {
+        if (snapshot.getState() == State.PAUSED) {
+            publish(snapshot.resumedAt(nanoTime()));
+        }
+    }
+
+    public void stop() {
+        if (snapshot.getState() != State.IDLE) {
+            publish(TimerSnapshot.IDLE);
+        }
+    }
+
+    /**
+     * Takes over the state of a timer followed, e.g. through a
+     * {@link StateSubscriber}. A snapshot that differs only by the clocks of
+     * the two timers is not published again.
+     */
+    public void follow(TimerSnapshot leader) {
+        long now = nanoTime();
+        if (leader.getState() != snapshot.getState()
+                || leader.isOverdue() != snapshot.isOverdue()
+                || leader.getDurationMillis() != snapshot.getDurationMillis()
+                || Math.abs(leader.millisLeft(now) - snapshot.millisLeft(now)) > FOLLOW_TOLERANCE_MILLIS) {
+            publish(leader);
+        }
+    }
+
+    /**
+     * Samples the clock and moves on to {@link State#OVERDUE} or
+     * {@link State#FINISHED} once the deadline has passed.
+     *
+     * @return the milliseconds left, negative while overdue
+     */
+    public long update() {
+        long now = nanoTime();
+        // a successor may follow with a deadline that has passed as well
+        while (snapshot.getState() == State.NORMAL && snapshot.getDeadline() - now <= 0) {
+            TimerSnapshot next = successor == null ? null : successor.next(snapshot);
+            publish(next == null ? snapshot.expired(overdueOn) : next);
+        }
+        return snapshot.millisLeft(now);
+    }
+
+    public long millisLeft() {
+        return snapshot.millisLeft(nanoTime());
+    }
+
+    private void publish(TimerSnapshot newSnapshot) {
+        TimerSnapshot oldSnapshot = snapshot;
+        snapshot = newSnapshot;
+        published = new Published(published.getSequence() + 1, newSnapshot, overdueOn);
+        for (TimerListener listener : listeners) {
+            listener.stateChanged(oldSnapshot, newSnapshot);
+        }
+    }
+
+    private long nanoTime() {
+        return timeSource.nanoTime();
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+/**
+ * Gets notified about every state transition of a {@link TimerCore}, and
+ * optionally about changes of its overdue setting, on the thread that caused
+ * it.
+ *
+ * @author Jens Deters
+ */
+@FunctionalInterface
+public interface TimerListener {
+
+    void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot);
+
+    /**
+     * The overdue setting changed, the state did not.
+     */
+    default void overdueOnChanged(boolean overdueOn) {
+    }
+}
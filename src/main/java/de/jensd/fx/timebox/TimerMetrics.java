@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Tick latency and drift of the timers.
+ * <p>
+ * Records the interval between pulses, pulses that were dropped on the way,
+ * the time spent updating the properties and their listeners, and how late
+ * the end of a box has been noticed. Recording is lock-free and allocation
+ * free, the numbers are exposed as a platform MBean and optionally logged.
+ *
+ * @author Jens Deters
+ */
+public class TimerMetrics implements TimerMetricsMXBean {
+
+    public static final String OBJECT_NAME = "de.jensd.fx.timebox:type=TimerMetrics";
+
+    /**
+     * The JavaFX pulse interval at 60 fps.
+     */
+    public static final long PULSE_NANOS = 1_000_000_000L / 60;
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final LatencyHistogram tickIntervals = new LatencyHistogram();
+    private final LatencyHistogram listenerTimes = new LatencyHistogram();
+    private final LatencyHistogram drifts = new LatencyHistogram();
+    private final LatencyHistogram inputToFrames = new LatencyHistogram();
+    private final AtomicLong droppedPulses = new AtomicLong();
+    private final AtomicLong inputEvents = new AtomicLong();
+    private ScheduledExecutorService logExecutor;
+
+    /**
+     * @param interval the nanoseconds since the previous pulse
+     */
+    public void recordTickInterval(long interval) {
+        tickIntervals.record(interval);
+        long missed = (interval + PULSE_NANOS / 2) / PULSE_NANOS - 1;
+        if (missed > 0) {
+            droppedPulses.addAndGet(missed);
+        }
+    }
+
+    public void recordListenerTime(long nanos) {
+        listenerTimes.record(nanos);
+    }
+
+    /**
+     * @param nanos how long after its deadline the end of a box was noticed
+     */
+    public void recordDrift(long nanos) {
+        drifts.record(nanos);
+    }
+
+    /**
+     * @param latency the nanoseconds from the first input event of a frame
+     * until the pulse applying it has laid out the scene
+     * @param events the input events coalesced into that update
+     */
+    public void recordInput(long latency, int events) {
+        inputToFrames.record(latency);
+        inputEvents.addAndGet(events);
+    }
+
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException ex) {
+            Logger.getLogger(TimerMetrics.class.getName()).
+                    log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Logs a summary line every {@code seconds}.
+     */
+    public synchronized void startLogging(long seconds) {
+        if (logExecutor == null && seconds > 0) {
+            logExecutor = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+                Thread thread = new Thread(r, "timebox-metrics-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            logExecutor.scheduleAtFixedRate(() -> {
+                Logger.getLogger(TimerMetrics.class.getName()).info(toString());
+            }, seconds, seconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public synchronized void stopLogging() {
+        if (logExecutor != null) {
+            logExecutor.shutdownNow();
+            logExecutor = null;
+        }
+    }
+
+    @Override
+    public long getTickCount() {
+        return tickIntervals.getCount();
+    }
+
+    @Override
+    public long getDroppedPulses() {
+        return droppedPulses.get();
+    }
+
+    @Override
+    public double getTickIntervalMean() {
+        return tickIntervals.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getTickIntervalP99() {
+        return tickIntervals.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getTickIntervalMax() {
+        return tickIntervals.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getListenerTimeMean() {
+        return listenerTimes.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getListenerTimeP99() {
+        return listenerTimes.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getListenerTimeMax() {
+        return listenerTimes.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getExpiredCount() {
+        return drifts.getCount();
+    }
+
+    @Override
+    public double getDriftMean() {
+        return drifts.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getDriftMax() {
+        return drifts.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public long getInputEvents() {
+        return inputEvents.get();
+    }
+
+    @Override
+    public long getInputUpdates() {
+        return inputToFrames.getCount();
+    }
+
+    @Override
+    public double getInputToFrameMean() {
+        return inputToFrames.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getInputToFrameP99() {
+        return inputToFrames.getValueAtPercentile(99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getInputToFrameMax() {
+        return inputToFrames.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        tickIntervals.reset();
+        listenerTimes.reset();
+        drifts.reset();
+        inputToFrames.reset();
+        droppedPulses.set(0);
+        inputEvents.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ticks=%d dropped=%d interval[mean=%.2f p99=%.2f max=%.2f] listeners[mean=%.3f p99=%.3f max=%.3f] drift[n=%d mean=%.2f max=%.2f] input[events=%d updates=%d to frame mean=%.2f p99=%.2f max=%.2f] ms",
+                getTickCount(), getDroppedPulses(),
+                getTickIntervalMean(), getTickIntervalP99(), getTickIntervalMax(),
+                getListenerTimeMean(), getListenerTimeP99(), getListenerTimeMax(),
+                getExpiredCount(), getDriftMean(), getDriftMax(),
+                getInputEvents(), getInputUpdates(), getInputToFrameMean(), getInputToFrameP99(), getInputToFrameMax());
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+/**
+ * JMX view of the {@link TimerMetrics}. Times are in milliseconds.
+ *
+ * @author Jens Deters
+ */
+public interface TimerMetricsMXBean {
+
+    long getTickCount();
+
+    long getDroppedPulses();
+
+    double getTickIntervalMean();
+
+    double getTickIntervalP99();
+
+    double getTickIntervalMax();
+
+    double getListenerTimeMean();
+
+    double getListenerTimeP99();
+
+    double getListenerTimeMax();
+
+    long getExpiredCount();
+
+    double getDriftMean();
+
+    double getDriftMax();
+
+    /**
+     * @return the pointer events on the dial
+     */
+    long getInputEvents();
+
+    /**
+     * @return the updates of the start length the events were coalesced into
+     */
+    long getInputUpdates();
+
+    /**
+     * The time from the first event of a frame until the pulse applying it
+     * has laid out the scene, on JavaFX 8 until it has also been copied to the
+     * render graph. Drawing the frame on the render thread and showing it are
+     * not included.
+     */
+    double getInputToFrameMean();
+
+    double getInputToFrameP99();
+
+    double getInputToFrameMax();
+
+    void reset();
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import de.jensd.fx.timebox.TimerCore.State;
+
+/**
+ * Immutable state of a {@link TimerCore} as of its last transition.
+ * <p>
+ * Only the deadline is stored, never the time left, so a snapshot stays valid
+ * while the timer runs and {@link #millisLeft(long)} can be evaluated for any
+ * point in time.
+ *
+ * @author Jens Deters
+ */
+public final class TimerSnapshot {
+
+    public static final TimerSnapshot IDLE = new TimerSnapshot(State.IDLE, false, 0, 0, 0);
+
+    private final State state;
+    private final boolean overdue;
+    private final long durationMillis;
+    private final long deadline;
+    private final long pausedAt;
+
+    /**
+     * @param state the state of the timer
+     * @param overdue whether the timer counts past its deadline, kept while paused
+     * @param durationMillis the planned length of the timebox
+     * @param deadline the {@link System#nanoTime()} at which the timebox runs out
+     * @param pausedAt the {@link System#nanoTime()} the timer was paused at
+     */
+    public TimerSnapshot(State state, boolean overdue, long durationMillis, long deadline, long pausedAt) {
+        this.state = state;
+        this.overdue = overdue;
+        this.durationMillis = durationMillis;
+        this.deadline = deadline;
+        this.pausedAt = pausedAt;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isOverdue() {
+        return overdue;
+    }
+
+    public boolean isRunning() {
+        return state == State.NORMAL || state == State.OVERDUE;
+    }
+
+    public boolean isPaused() {
+        return state == State.PAUSED;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public long getPausedAt() {
+        return pausedAt;
+    }
+
+    /**
+     * @param now a {@link System#nanoTime()} value
+     * @return the milliseconds left at {@code now}, negative while overdue
+     */
+    public long millisLeft(long now) {
+        switch (state) {
+            case NORMAL:
+                return Math.max(0, Math.floorDiv(deadline - now, 1_000_000L));
+            case OVERDUE:
+                return Math.floorDiv(deadline - now, 1_000_000L);
+            case PAUSED:
+                return Math.floorDiv(deadline - pausedAt, 1_000_000L);
+            default:
+                return 0;
+        }
+    }
+
+    TimerSnapshot pausedAt(long now) {
+        return new TimerSnapshot(State.PAUSED, overdue, durationMillis, deadline, now);
+    }
+
+    TimerSnapshot resumedAt(long now) {
+        return new TimerSnapshot(overdue ? State.OVERDUE : State.NORMAL, overdue, durationMillis, deadline + now - pausedAt, 0);
+    }
+
+    TimerSnapshot expired(boolean overdueOn) {
+        return new TimerSnapshot(overdueOn ? State.OVERDUE : State.FINISHED, overdueOn, durationMillis, deadline, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "TimerSnapshot{" + "state=" + state + ", overdue=" + overdue + ", durationMillis=" + durationMillis + ", deadline=" + deadline + ", pausedAt=" + pausedAt + '}';
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small HTTP endpoint to query and control the timer, e.g. for a room
+ * booking system.
+ * <pre>
+ * GET  /timer                    the state as JSON
+ * POST /timer/start[?minutes=n]  starts the timer, with the dial setting if no minutes are given
+ * POST /timer/pause
+ * POST /timer/continue
+ * POST /timer/stop
+ * </pre>
+ * Status requests are answered from {@link TimerCore#getPublished()} and
+ * never wait for the FX thread, commands are handed to the
+ * {@link Controller} through the control executor and answered with 202
+ * right away. Requests run on virtual threads when the runtime has them,
+ * otherwise on a small pool.
+ *
+ * @author Jens Deters
+ */
+public class TimerStatusServer implements AutoCloseable {
+
+    /**
+     * Carries out the commands, called on the control executor.
+     */
+    public interface Controller {
+
+        /**
+         * @param minutes the length of the timebox, 0 for the dial setting
+         */
+        void start(int minutes);
+
+        void pause();
+
+        void resume();
+
+        void stop();
+    }
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final InetSocketAddress address;
+    private final Controller controller;
+    private final Executor controlExecutor;
+    private TimerCore core;
+    private HttpServer server;
+    private ExecutorService requestExecutor;
+
+    /**
+     * @param address where to listen
+     * @param controller carries out start, pause, continue and stop
+     * @param controlExecutor runs the commands on the thread driving the
+     * timer, e.g. {@code Platform::runLater}
+     */
+    public TimerStatusServer(InetSocketAddress address, Controller controller, Executor controlExecutor) {
+        this.address = address;
+        this.controller = controller;
+        this.controlExecutor = controlExecutor;
+    }
+
+    public void attach(TimerCore core) {
+        this.core = core;
+    }
+
+    public void start() throws IOException {
+        // headers and body go out in separate writes, without TCP_NODELAY
+        // every response waits for the delayed ACK of the client
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(address, 0);
+        server.createContext("/timer", this::handleStatus);
+        server.createContext("/timer/start", (HttpExchange exchange) -> {
+            int minutes = parseMinutes(exchange.getRequestURI().getQuery());
+            if (minutes < 0) {
+                respond(exchange, 400, "{\"error\":\"minutes must be 1 to 60\"}");
+                return;
+            }
+            handleCommand(exchange, "start", () -> controller.start(minutes));
+        });
+        server.createContext("/timer/pause", (HttpExchange exchange) -> {
+            handleCommand(exchange, "pause", controller::pause);
+        });
+        server.createContext("/timer/continue", (HttpExchange exchange) -> {
+            handleCommand(exchange, "continue", controller::resume);
+        });
+        server.createContext("/timer/stop", (HttpExchange exchange) -> {
+            handleCommand(exchange, "stop", controller::stop);
+        });
+        requestExecutor = newRequestExecutor();
+        server.setExecutor(requestExecutor);
+        server.start();
+    }
+
+    /**
+     * @return the address the server listens on
+     */
+    public InetSocketAddress getLocalAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            requestExecutor.shutdown();
+        }
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/timer")) {
+            respond(exchange, 404, "{\"error\":\"not found\"}");
+        } else if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            respond(exchange, 405, "{\"error\":\"GET only\"}");
+        } else {
+            respond(exchange, 200, toJson(core.getPublished(), System.nanoTime()));
+        }
+    }
+
+    private void handleCommand(HttpExchange exchange, String command, Runnable action) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "{\"error\":\"POST only\"}");
+            return;
+        }
+        controlExecutor.execute(action);
+        respond(exchange, 202, "{\"accepted\":\"" + command + "\"}");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return the minutes of the query, 0 if none are given, -1 if invalid
+     */
+    private static int parseMinutes(String query) {
+        if (query == null || query.isEmpty()) {
+            return 0;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("minutes=")) {
+                try {
+                    int minutes = Integer.parseInt(parameter.substring("minutes=".length()));
+                    return minutes >= 1 && minutes <= 60 ? minutes : -1;
+                } catch (NumberFormatException ex) {
+                    return -1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static ExecutorService newRequestExecutor() {
+        try {
+            // virtual threads on Java 21 or later, the sources stay on Java 8
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), (Runnable r) -> {
+                Thread thread = new Thread(r, "timebox-http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static String toJson(TimerCore.Published published, long now) {
+        TimerSnapshot snapshot = published.getSnapshot();
+        long millisLeft = snapshot.millisLeft(now);
+        return "{\"state\":\"" + snapshot.getState()
+                + "\",\"running\":" + snapshot.isRunning()
+                + ",\"paused\":" + snapshot.isPaused()
+                + ",\"overdue\":" + snapshot.isOverdue()
+                + ",\"overdueAllowed\":" + published.isOverdueOn()
+                + ",\"durationMillis\":" + snapshot.getDurationMillis()
+                + ",\"millisLeft\":" + millisLeft
+                + ",\"display\":\"" + CounterFormat.format(millisLeft) + "\"}";
+    }
+}
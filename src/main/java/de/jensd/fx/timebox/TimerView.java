@@ -17,30 +17,38 @@ import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIcon;
 import de.jensd.fx.glyphs.materialdesignicons.MaterialDesignIconView;
 import java.awt.Desktop;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.UnsupportedAudioFileException;
 import javafx.animation.FadeTransition;
 import javafx.animation.Interpolator;
-import javafx.animation.KeyFrame;
-import javafx.animation.KeyValue;
-import javafx.animation.Timeline;
 import javafx.application.Platform;
+import javafx.beans.Observable;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.value.ObservableValue;
+import javafx.css.PseudoClass;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
-import javafx.scene.Group;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Hyperlink;
@@ -55,15 +63,10 @@ import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
-import javafx.scene.media.AudioClip;
-import javafx.scene.paint.Color;
 import javafx.scene.shape.Arc;
 import javafx.scene.shape.ArcType;
-import javafx.scene.shape.Circle;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.StrokeLineCap;
 import javafx.scene.text.Text;
-import javafx.scene.transform.Rotate;
+import javafx.scene.text.TextAlignment;
 import javafx.stage.Screen;
 import javafx.util.Duration;
 
@@ -79,31 +82,54 @@ public class TimerView extends StackPane {
     private Button aboutButton;
     private VBox stageBar;
     private Arc timeLeftSliceArc;
-    private Arc timeLeftBackgroundSliceArc;
-    private Circle backgroundSliceArc;
-    private Circle centerSliceArc;
     private Text counterText;
     private Text titleText;
     private Text copyrightText;
     private Text versionText;
-    private Group clockPane;
+    private Text agendaText;
+    private DialPane dialPane;
+    private FadeTransition startFade;
+    private FadeTransition stopFade;
+    private CounterTransition startCounter;
+    private CounterTransition stopCounter;
     private HBox clockButtonsBox;
     private VBox appInfoBox;
 
     private DoubleProperty startLengthProperty;
-    private DoubleProperty scaleProperty;
-    private DoubleProperty centerXProperty;
-    private DoubleProperty centerYProperty;
     private BooleanProperty audioOnProperty;
 
     private TimerClockWork timerClockWork;
-    private AudioClip alarmPlayer;
-    private AudioClip clickPlayer;
+    private InputCoalescer dialInput;
+    private volatile AudioEngine audioEngine;
+    private AudioEngine.Cue alarmCue;
     private Properties appProperties;
-    private Preferences userPreferences;
+    private SettingsStore settingsStore;
+    /**
+     * True while the overdue setting is changed for a resumed box, such a
+     * change is not stored.
+     */
+    private boolean overdueOnFromCheckpoint;
     public final static String PROPERTIES_FILE = "/timebox.properties";
+    private final static String ALARM_SOUND = "alarm";
+    private final static String CLICK_SOUND = "click";
+    // at most one click per frame or so, however fast the dial is turned
+    private final static long CLICK_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(30);
+    private final static String OVERDUE_ON_SETTING = "overdueOn";
+    private final static String AUDIO_ON_SETTING = "audioOn";
+    private final static String START_LENGTH_SETTING = "startLength";
+    private final static int UPCOMING_AGENDA_ITEMS = 3;
     private ModalDimmer modalDimmer;
     private Pane settingsPane;
+    private SessionJournal journal;
+    private TimerCheckpoint checkpoint;
+    private StateBroadcaster broadcaster;
+    private StateSubscriber subscriber;
+    private TimerStatusServer statusServer;
+    private Agenda agenda;
+    private IdleMeter idleMeter;
+    private DialMirror dialMirror;
+    private int lastCounterIndex = -1;
+    private final static PseudoClass PAUSED_PSEUDO_CLASS = PseudoClass.getPseudoClass("paused");
 
     public TimerView() {
         init();
@@ -112,32 +138,31 @@ public class TimerView extends StackPane {
     private void init() {
         appProperties = loadAppProperties();
         timerClockWork = new TimerClockWork();
+        dialInput = new InputCoalescer(this::setTimeStartValue);
+        if (Boolean.parseBoolean(getSetting("app.metrics.enabled"))) {
+            TimerMetrics metrics = new TimerMetrics();
+            metrics.register();
+            metrics.startLogging(Long.parseLong(getSetting("app.metrics.log.interval")));
+            timerClockWork.setMetrics(metrics);
+            dialInput.setMetrics(metrics);
+            sceneProperty().addListener((ObservableValue<? extends Scene> ov, Scene oldScene, Scene newScene) -> {
+                if (oldScene == null && newScene != null) {
+                    dialInput.attachToPulse(newScene);
+                }
+            });
+        }
+        long idleMeterInterval = Long.parseLong(getSetting("app.idle.meter.interval"));
+        if (idleMeterInterval > 0) {
+            startIdleMeter(idleMeterInterval);
+        }
         modalDimmer = new ModalDimmer();
-        settingsPane = createAboutPane();
-        scaleProperty = new SimpleDoubleProperty(200);
-        centerXProperty = new SimpleDoubleProperty(200);
-        centerYProperty = new SimpleDoubleProperty(200);
         startLengthProperty = new SimpleDoubleProperty(0);
-        String alarmSource = getClass().getResource(appProperties.getProperty("clip.source.alarm")).toExternalForm();
-        String clickSource = getClass().getResource(appProperties.getProperty("clip.source.click")).toExternalForm();
-        alarmPlayer = new AudioClip(alarmSource);
-        clickPlayer = new AudioClip(clickSource);
-        clickPlayer.setVolume(0.05);
+        loadAudio();
         timeLeftSliceArc = new Arc();
         timeLeftSliceArc.getStyleClass().setAll("time-slice-arc-green");
         timeLeftSliceArc.setLength(0.0);
         timeLeftSliceArc.setStartAngle(90.0);
         timeLeftSliceArc.setType(ArcType.ROUND);
-        timeLeftBackgroundSliceArc = new Arc();
-        timeLeftBackgroundSliceArc.setFill(new Color(1, 1, 1, 0.9));
-        timeLeftBackgroundSliceArc.setLength(360.0);
-        timeLeftBackgroundSliceArc.setStartAngle(90.0);
-        timeLeftBackgroundSliceArc.setType(ArcType.ROUND);
-        timeLeftBackgroundSliceArc.getStyleClass().setAll("timer-background-slice-arc");
-        backgroundSliceArc = new Circle();
-        backgroundSliceArc.getStyleClass().setAll("background-slice-arc");
-        centerSliceArc = new Circle(75.0);
-        centerSliceArc.getStyleClass().setAll("center-slice-arc");
         counterText = new Text();
         counterText.getStyleClass().setAll("counter-text-normal");
         titleText = new Text(appProperties.getProperty("app.name"));
@@ -161,11 +186,19 @@ public class TimerView extends StackPane {
         aboutButton.getStyleClass().setAll("navigation-button");
         appInfoBox = new VBox(titleText, versionText, copyrightText);
         appInfoBox.setAlignment(Pos.CENTER);
-        clockPane = new Group();
-        clockPane.getChildren().
-                addAll(backgroundSliceArc, timeLeftBackgroundSliceArc, timeLeftSliceArc, createTickGroup(),
-                        centerSliceArc, counterText,
-                        clockButtonsBox, appInfoBox);
+        String agendaFile = getSetting("app.agenda.file");
+        if (agendaFile != null && !agendaFile.isEmpty()) {
+            loadAgenda(Paths.get(agendaFile));
+        }
+        dialPane = new DialPane(startLengthProperty, timeLeftSliceArc, counterText, clockButtonsBox, appInfoBox,
+                "canvas".equals(getSetting("app.dial.renderer")));
+        for (Node inputNode : dialPane.getInputNodes()) {
+            attachDialInputHandler(inputNode);
+        }
+        AnchorPane.setTopAnchor(dialPane, 0.0);
+        AnchorPane.setRightAnchor(dialPane, 0.0);
+        AnchorPane.setBottomAnchor(dialPane, 0.0);
+        AnchorPane.setLeftAnchor(dialPane, 0.0);
         stageBar = new VBox(5);
         stageBar.setAlignment(Pos.TOP_CENTER);
         Region spacer = new Region();
@@ -175,18 +208,52 @@ public class TimerView extends StackPane {
         AnchorPane.setRightAnchor(stageBar, 0.0);
         AnchorPane root = new AnchorPane();
         root.getStyleClass().setAll("root-pane");
-        root.getChildren().addAll(clockPane, stageBar);
+        root.getChildren().addAll(dialPane, stageBar);
         Rectangle2D r = Screen.getPrimary().getBounds();
         getStyleClass().setAll("root-pane");
         getChildren().addAll(root, modalDimmer);
+        dialMirror = new DialMirror(root);
+        dialMirror.watch(root.widthProperty(), root.heightProperty(), timerClockWork.milliSecondsLeftProperty(),
+                startLengthProperty, timeLeftSliceArc.opacityProperty(), counterText.textProperty());
+        createStartStopAnimations();
         attachEventHandler();
-        bindLayoutProperties(root);
         bindTimerProperties();
         attachKeyEventsListener();
-        userPreferences = loadUserPreferences();
+        settingsStore = loadSettings();
+        if (Boolean.parseBoolean(getSetting("app.journal.enabled"))) {
+            openJournal();
+        }
+        // a follower gets its state from the leader
+        if (Boolean.parseBoolean(getSetting("app.checkpoint.enabled"))
+                && !"follow".equals(getSetting("app.broadcast.mode"))) {
+            openCheckpoint();
+        }
+        switch (getSetting("app.broadcast.mode")) {
+            case "publish":
+                startBroadcast();
+                break;
+            case "follow":
+                followBroadcast();
+                break;
+        }
+        if (Boolean.parseBoolean(getSetting("app.http.enabled"))) {
+            startStatusServer();
+        }
 
     }
 
+    private void attachDialInputHandler(Node dialNode) {
+        EventHandler<MouseEvent> handler = (MouseEvent mouseEvent) -> {
+            if (timerClockWork.runningProperty().not().get()
+                    && dialPane.isOnDial(mouseEvent.getSceneX(), mouseEvent.getSceneY())) {
+                dialInput.submit(mouseEvent.getSceneX(), mouseEvent.getSceneY());
+                mouseEvent.consume();
+            }
+        };
+        dialNode.setOnMousePressed(handler);
+        dialNode.setOnMouseDragged(handler);
+    }
+
     private void attachKeyEventsListener() {
         addEventFilter(KeyEvent.KEY_PRESSED, (KeyEvent event) -> {
             event.consume();
@@ -203,6 +270,12 @@ public class TimerView extends StackPane {
                     decreaseStartTime();
                     break;
                 case ENTER:
+                    if (agenda != null && timerClockWork.isRunning()) {
+                        agenda.next();
+                    } else {
+                        resetStartTime();
+                    }
+                    break;
                 case ESCAPE:
                     resetStartTime();
                     break;
@@ -239,20 +312,45 @@ public class TimerView extends StackPane {
         }
     }
 
-    private Preferences loadUserPreferences() {
-        Preferences userPrefs = Preferences.userNodeForPackage(this.getClass());
-        timerClockWork.overdueOnProperty().set(userPrefs.getBoolean("overdueOn", false));
-        audioOnProperty().set(userPrefs.getBoolean("audioOn", true));
-        return userPrefs;
+    /**
+     * Loads the user settings, every later change is written behind by the
+     * store.
+     */
+    private SettingsStore loadSettings() {
+        SettingsStore store = new SettingsStore(getDataDirectory().resolve(SettingsStore.FILE_NAME));
+        if (store.isEmpty()) {
+            importPreferences(store);
+        }
+        timerClockWork.overdueOnProperty().set(store.getBoolean(OVERDUE_ON_SETTING, false));
+        audioOnProperty().set(store.getBoolean(AUDIO_ON_SETTING, true));
+        startLengthProperty.set(store.getDouble(START_LENGTH_SETTING, 0.0));
+        timerClockWork.overdueOnProperty().addListener((ObservableValue<? extends Boolean> ov, Boolean oldValue, Boolean newValue) -> {
+            if (!overdueOnFromCheckpoint) {
+                store.putBoolean(OVERDUE_ON_SETTING, newValue);
+            }
+        });
+        audioOnProperty().addListener((ObservableValue<? extends Boolean> ov, Boolean oldValue, Boolean newValue) -> {
+            store.putBoolean(AUDIO_ON_SETTING, newValue);
+        });
+        startLengthProperty.addListener((ObservableValue<? extends Number> ov, Number oldValue, Number newValue) -> {
+            store.putDouble(START_LENGTH_SETTING, newValue.doubleValue());
+        });
+        return store;
     }
 
-    public void storePreferences(Preferences preferences) {
-        preferences.putBoolean("overdueOn", timerClockWork.overdueOnProperty().get());
-        preferences.putBoolean("audioOn", isAudioOn());
+    /**
+     * Takes over the settings of versions that kept them in the Java
+     * preferences.
+     */
+    private void importPreferences(SettingsStore store) {
         try {
-            preferences.sync();
+            if (Preferences.userRoot().nodeExists(Preferences.userNodeForPackage(TimerView.class).absolutePath())) {
+                Preferences userPrefs = Preferences.userNodeForPackage(TimerView.class);
+                store.putBoolean(OVERDUE_ON_SETTING, userPrefs.getBoolean(OVERDUE_ON_SETTING, false));
+                store.putBoolean(AUDIO_ON_SETTING, userPrefs.getBoolean(AUDIO_ON_SETTING, true));
+            }
         } catch (BackingStoreException ex) {
-            Logger.getLogger(Main.class.getName()).
+            Logger.getLogger(TimerView.class.getName()).
                     log(Level.SEVERE, null, ex);
         }
     }
@@ -269,12 +367,27 @@ public class TimerView extends StackPane {
         return props;
     }
 
+    /**
+     * @return the app property of the given key, a system property of the
+     * same name takes precedence
+     */
+    public String getSetting(String key) {
+        return System.getProperty(key, appProperties.getProperty(key));
+    }
+
     public Properties getAppProperties() {
         return appProperties;
     }
 
-    public Preferences getUserPreferences() {
-        return userPreferences;
+    /**
+     * @return the mirror of the timer for more windows
+     */
+    public DialMirror getDialMirror() {
+        return dialMirror;
+    }
+
+    public SettingsStore getSettingsStore() {
+        return settingsStore;
     }
 
     public void showModalMessage(Node dialogNode) {
@@ -286,53 +399,314 @@ public class TimerView extends StackPane {
     }
 
     public void onExitApp() {
-        storePreferences(userPreferences);
+        settingsStore.close();
+        if (idleMeter != null) {
+            idleMeter.stopLogging();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (checkpoint != null) {
+            checkpoint.close();
+        }
+        if (broadcaster != null) {
+            broadcaster.close();
+        }
+        if (subscriber != null) {
+            subscriber.close();
+        }
+        if (statusServer != null) {
+            statusServer.close();
+        }
         Platform.exit();
     }
 
+    /**
+     * Counts pulses and CPU time while no box runs, the dial should cost
+     * nothing then.
+     */
+    private void startIdleMeter(long seconds) {
+        idleMeter = new IdleMeter();
+        idleMeter.setIdle(true);
+        sceneProperty().addListener((ObservableValue<? extends Scene> ov, Scene oldScene, Scene newScene) -> {
+            if (oldScene == null && newScene != null) {
+                idleMeter.attach(newScene);
+            }
+        });
+        idleMeter.startLogging(seconds);
+    }
+
+    private void openJournal() {
+        try {
+            journal = new SessionJournal(getJournalDirectory());
+            journal.attach(timerClockWork.getCore(), 0);
+        } catch (IOException ex) {
+            Logger.getLogger(TimerView.class.getName()).
+                    log(Level.SEVERE, "Session journal not available", ex);
+        }
+    }
+
+    private void openCheckpoint() {
+        try {
+            checkpoint = new TimerCheckpoint(getDataDirectory().resolve(TimerCheckpoint.FILE_NAME));
+            checkpoint.attach(timerClockWork.getCore());
+        } catch (IOException ex) {
+            Logger.getLogger(TimerView.class.getName()).
+                    log(Level.SEVERE, "Checkpoint not available", ex);
+        }
+    }
+
+    /**
+     * Resumes the box that was running or paused when the application was
+     * killed, without the start animation.
+     *
+     * @return true if a box has been resumed
+     */
+    public boolean resumeCheckpoint() {
+        if (checkpoint == null || timerClockWork.isRunning()) {
+            return false;
+        }
+        TimerCore core = timerClockWork.getCore();
+        TimerSnapshot saved = checkpoint.getSaved(core.getTimeSource().nanoTime());
+        if (saved == null) {
+            return false;
+        }
+        startLengthProperty.set(Math.round(saved.getDurationMillis() / 60000.0));
+        // before following, a box past its end without overdue on would finish right away
+        setOverdueOnFromCheckpoint(checkpoint.isSavedOverdueOn());
+        core.addListener(new TimerListener() {
+            @Override
+            public void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+                if (newSnapshot.getState() == TimerCore.State.IDLE || newSnapshot.getState() == TimerCore.State.FINISHED) {
+                    // the resumed box is over, back to the setting of the user
+                    core.removeListener(this);
+                    setOverdueOnFromCheckpoint(settingsStore.getBoolean(OVERDUE_ON_SETTING, false));
+                }
+            }
+        });
+        core.follow(saved);
+        pauseButton.setSelected(saved.isPaused());
+        return true;
+    }
+
+    /**
+     * Sets the overdue setting for the resumed box only, the store keeps the
+     * setting of the user. A change by the user is stored as usual.
+     */
+    private void setOverdueOnFromCheckpoint(boolean overdueOn) {
+        overdueOnFromCheckpoint = true;
+        timerClockWork.overdueOnProperty().set(overdueOn);
+        overdueOnFromCheckpoint = false;
+    }
+
+    private void startBroadcast() {
+        try {
+            broadcaster = new StateBroadcaster(new InetSocketAddress(Integer.parseInt(getSetting("app.broadcast.port"))));
+            broadcaster.attach(timerClockWork.getCore());
+            broadcaster.start();
+        } catch (IOException ex) {
+            Logger.getLogger(TimerView.class.getName()).
+                    log(Level.SEVERE, "State broadcast not available", ex);
+        }
+    }
+
+    /**
+     * Mirrors the timer of another instance, the controls are hidden.
+     */
+    private void followBroadcast() {
+        clockButtonsBox.setVisible(false);
+        dialPane.setMouseTransparent(true);
+        subscriber = new StateSubscriber(
+                InetSocketAddress.createUnresolved(getSetting("app.broadcast.host"), Integer.parseInt(getSetting("app.broadcast.port"))),
+                timerClockWork.getCore(), Platform::runLater);
+        subscriber.start();
+    }
+
+    private void startStatusServer() {
+        TimerStatusServer.Controller controller = new TimerStatusServer.Controller() {
+            @Override
+            public void start(int minutes) {
+                if (minutes > 0 && !timerClockWork.isRunning()) {
+                    startLengthProperty.set(minutes);
+                }
+                onStart();
+            }
+
+            @Override
+            public void pause() {
+                if (timerClockWork.isRunning()) {
+                    pauseButton.setSelected(true);
+                }
+            }
+
+            @Override
+            public void resume() {
+                pauseButton.setSelected(false);
+            }
+
+            @Override
+            public void stop() {
+                pauseButton.setSelected(false);
+                onStop();
+            }
+        };
+        try {
+            statusServer = new TimerStatusServer(
+                    new InetSocketAddress(getSetting("app.http.address"), Integer.parseInt(getSetting("app.http.port"))),
+                    controller, Platform::runLater);
+            statusServer.attach(timerClockWork.getCore());
+            statusServer.start();
+        } catch (IOException ex) {
+            Logger.getLogger(TimerView.class.getName()).
+                    log(Level.SEVERE, "Status endpoint not available", ex);
+        }
+    }
+
+    /**
+     * Runs the items of an agenda file back to back instead of the time set
+     * on the dial. The file is read off the FX thread, invalid entries are
+     * logged and skipped.
+     */
+    private void loadAgenda(Path file) {
+        Thread agendaLoader = new Thread(() -> {
+            try {
+                AgendaImporter.Result result = AgendaImporter.load(file);
+                for (String error : result.getErrors()) {
+                    Logger.getLogger(TimerView.class.getName()).
+                            log(Level.WARNING, "{0}: {1}", new Object[]{file, error});
+                }
+                if (!result.getSchedule().isEmpty()) {
+                    Platform.runLater(() -> {
+                        showAgenda(new Agenda(result.getSchedule(), Boolean.parseBoolean(getSetting("app.agenda.carryover"))));
+                    });
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(TimerView.class.getName()).
+                        log(Level.SEVERE, "Agenda not available", ex);
+            }
+        }, "timebox-agenda-loader");
+        agendaLoader.setDaemon(true);
+        agendaLoader.start();
+    }
+
+    private void showAgenda(Agenda loadedAgenda) {
+        agenda = loadedAgenda;
+        agenda.attach(timerClockWork.getCore());
+        agendaText = new Text();
+        agendaText.getStyleClass().setAll("agenda-text");
+        agendaText.setTextAlignment(TextAlignment.CENTER);
+        appInfoBox.getChildren().add(0, agendaText);
+        dialMirror.watch(agendaText.textProperty());
+        timerClockWork.getCore().addListener((TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) -> {
+            updateAgendaPreview();
+        });
+        updateAgendaPreview();
+    }
+
+    private void updateAgendaPreview() {
+        AgendaItem current = agenda.getCurrent();
+        List<AgendaItem> upcoming = agenda.getUpcoming(UPCOMING_AGENDA_ITEMS);
+        StringBuilder preview = new StringBuilder();
+        if (current != null) {
+            preview.append(current.getTitle()).append(upcoming.isEmpty() ? " - last item" : "");
+        }
+        for (int i = 0; i < upcoming.size(); i++) {
+            AgendaItem item = upcoming.get(i);
+            if (preview.length() > 0) {
+                preview.append('\n');
+            }
+            preview.append(i == 0 ? "next: " : "then: ").append(item.getTitle())
+                    .append(' ').append(CounterFormat.format(item.getDurationMillis()));
+        }
+        agendaText.setText(preview.toString());
+    }
+
+    private Path getJournalDirectory() {
+        return getDataDirectory().resolve("journal");
+    }
+
+    /**
+     * Analyzes the journal off the FX thread and shows the result.
+     */
+    private void onShowOverrunStatistics() {
+        if (journal != null) {
+            journal.flush();
+        }
+        Thread analyzer = new Thread(() -> {
+            try {
+                OverrunStats stats = OverrunAnalytics.analyze(getJournalDirectory());
+                Platform.runLater(() -> {
+                    showModalMessage(new OverrunSummaryPane(stats, () -> showModalMessage(getSettingsPane())));
+                });
+            } catch (IOException ex) {
+                Logger.getLogger(TimerView.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }, "timebox-overrun-analytics");
+        analyzer.setDaemon(true);
+        analyzer.start();
+    }
+
+    /**
+     * @return the directory for the files written by the app, app.data.dir
+     * or .timeboxfx in the user home
+     */
+    public Path getDataDirectory() {
+        String dataDir = getSetting("app.data.dir");
+        if (dataDir == null || dataDir.isEmpty()) {
+            return Paths.get(System.getProperty("user.home"), ".timeboxfx");
+        }
+        return Paths.get(dataDir);
+    }
+
     private void onStart() {
         if (timerClockWork.isRunning()) {
             return;
         }
-        alarmPlayer.stop();
+        stopAlarm();
         timerClockWork.setStartTimeMinutes(startLengthProperty.intValue());
-        // execute on startanimation finished:
-        EventHandler<ActionEvent> startTimer = (ActionEvent t) -> {
-            timerClockWork.stop();
-            timerClockWork.start();
-        };
-        FadeTransition fade = new FadeTransition(Duration.millis(550), timeLeftSliceArc);
-        fade.setFromValue(0.0);
-        fade.setToValue(1.0);
-        fade.setAutoReverse(true);
-        fade.play();
-
-        Timeline timeline = new Timeline(new KeyFrame(Duration.millis(550),
-                startTimer,
-                new KeyValue(timerClockWork.milliSecondsLeftProperty(),
-                        startLengthProperty.multiply(60000.0).get(),
-                        Interpolator.EASE_BOTH)));
-        timeline.play();
+        long startMillis = agenda == null ? startLengthProperty.intValue() * 60000L : agenda.getSchedule().getDurationMillis(0);
+        stopFade.stop();
+        stopCounter.stop();
+        startFade.playFromStart();
+        startCounter.playTo(startMillis);
     }
 
     private void onStop() {
         if (!timerClockWork.isRunning()) {
             return;
         }
-        alarmPlayer.stop();
+        stopAlarm();
         timerClockWork.stop();
-        // Stopanimation:
-        FadeTransition fade = new FadeTransition(Duration.millis(550), timeLeftSliceArc);
-        fade.setFromValue(1.0);
-        fade.setToValue(0.0);
-        fade.setAutoReverse(true);
-        fade.play();
-        Timeline timeline = new Timeline(new KeyFrame(
-                Duration.millis(550),
-                new KeyValue(timerClockWork.milliSecondsLeftProperty(),
-                        startLengthProperty.get() / 60000,
-                        Interpolator.EASE_BOTH)));
-        timeline.play();
+        startFade.stop();
+        startCounter.stop();
+        stopFade.playFromStart();
+        stopCounter.playTo(0);
+    }
+
+    /**
+     * The start and stop animations are created once and replayed, nothing is
+     * allocated per box.
+     */
+    private void createStartStopAnimations() {
+        startFade = new FadeTransition(Duration.millis(550), timeLeftSliceArc);
+        startFade.setFromValue(0.0);
+        startFade.setToValue(1.0);
+        stopFade = new FadeTransition(Duration.millis(550), timeLeftSliceArc);
+        stopFade.setFromValue(1.0);
+        stopFade.setToValue(0.0);
+        startCounter = new CounterTransition(Duration.millis(550), timerClockWork.milliSecondsLeftProperty());
+        startCounter.setInterpolator(Interpolator.EASE_BOTH);
+        // start the timer when the start animation has finished
+        startCounter.setOnFinished((ActionEvent t) -> {
+            timerClockWork.stop();
+            if (agenda == null) {
+                timerClockWork.start();
+            } else {
+                agenda.start();
+            }
+        });
+        stopCounter = new CounterTransition(Duration.millis(550), timerClockWork.milliSecondsLeftProperty());
+        stopCounter.setInterpolator(Interpolator.EASE_BOTH);
     }
 
     private void attachEventHandler() {
@@ -348,56 +722,18 @@ public class TimerView extends StackPane {
                     }
                 });
 
-        timeLeftBackgroundSliceArc.
-                setOnMousePressed((MouseEvent mouseEvent) -> {
-                    if (timerClockWork.runningProperty().not().get()) {
-                        setTimeStartValue(mouseEvent);
-                        mouseEvent.consume();
-                    }
-                });
-
-        timeLeftBackgroundSliceArc.
-                setOnMouseDragged((MouseEvent mouseEvent) -> {
-                    if (timerClockWork.runningProperty().not().get()) {
-                        setTimeStartValue(mouseEvent);
-                        mouseEvent.consume();
-                    }
-                });
-
-        backgroundSliceArc.setOnMousePressed((MouseEvent mouseEvent) -> {
-            if (timerClockWork.runningProperty().not().get()) {
-                setTimeStartValue(mouseEvent);
-                mouseEvent.consume();
-            }
-        });
-
-        backgroundSliceArc.setOnMouseDragged((MouseEvent mouseEvent) -> {
-            if (timerClockWork.runningProperty().not().get()) {
-                setTimeStartValue(mouseEvent);
-                mouseEvent.consume();
-            }
-        });
-
         aboutButton.setOnAction((ActionEvent t) -> {
-            modalDimmer.showModalMessage(settingsPane);
+            modalDimmer.showModalMessage(getSettingsPane());
         });
         startButton.setOnAction((ActionEvent t) -> {
             onStart();
         });
-        FadeTransition fadeTransitionButton = new FadeTransition(Duration.millis(600), pauseButton);
-        fadeTransitionButton.setFromValue(0.5);
-        fadeTransitionButton.setToValue(1.0);
-        fadeTransitionButton.setCycleCount(Timeline.INDEFINITE);
-        fadeTransitionButton.setInterpolator(Interpolator.EASE_BOTH);
-        fadeTransitionButton.setAutoReverse(true);
-
+        // paused is shown by a static style (:selected, :paused), nothing animates until the box continues
         pauseButton.selectedProperty().
                 addListener((ObservableValue<? extends Boolean> ov, Boolean oldValue, Boolean newValue) -> {
                     if (newValue) {
-                        fadeTransitionButton.play();
                         timerClockWork.pause();
                     } else {
-                        fadeTransitionButton.stop();
                         timerClockWork.continuePlay();
                     }
                 });
@@ -418,15 +754,68 @@ public class TimerView extends StackPane {
         return audioOnProperty().get();
     }
 
+    /**
+     * Decodes the sounds in the background, until they are ready the sounds
+     * are skipped.
+     */
+    private void loadAudio() {
+        URL alarmSource = getClass().getResource(appProperties.getProperty("clip.source.alarm"));
+        URL clickSource = getClass().getResource(appProperties.getProperty("clip.source.click"));
+        Thread loader = new Thread(() -> {
+            AudioEngine engine = new AudioEngine();
+            try {
+                engine.load(CLICK_SOUND, clickSource, 3, 0.05);
+                engine.load(ALARM_SOUND, alarmSource, 1, 1.0);
+                audioEngine = engine;
+            } catch (IOException | UnsupportedAudioFileException | LineUnavailableException | IllegalArgumentException ex) {
+                engine.shutdown();
+                Logger.getLogger(TimerView.class.getName()).
+                        log(Level.WARNING, "Sounds are not available", ex);
+            }
+            StartupProfiler.mark("audio loaded");
+        }, "timebox-audio-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
     private void playClick() {
-        if (isAudioOn()) {
-            clickPlayer.play();
+        AudioEngine engine = audioEngine;
+        if (isAudioOn() && engine != null) {
+            engine.playThrottled(CLICK_SOUND, CLICK_INTERVAL_NANOS);
         }
     }
 
     private void playAlarm() {
-        if (isAudioOn()) {
-            alarmPlayer.play();
+        AudioEngine engine = audioEngine;
+        if (isAudioOn() && engine != null) {
+            engine.play(ALARM_SOUND);
+        }
+    }
+
+    /**
+     * Lets the audio thread start the alarm right at the deadline instead of
+     * waiting for the FX thread to notice it.
+     */
+    private void scheduleAlarm(long deadline) {
+        cancelAlarm();
+        AudioEngine engine = audioEngine;
+        if (isAudioOn() && engine != null) {
+            alarmCue = engine.schedule(ALARM_SOUND, deadline);
+        }
+    }
+
+    private void cancelAlarm() {
+        if (alarmCue != null) {
+            alarmCue.cancel();
+            alarmCue = null;
+        }
+    }
+
+    private void stopAlarm() {
+        cancelAlarm();
+        AudioEngine engine = audioEngine;
+        if (engine != null) {
+            engine.stop(ALARM_SOUND);
         }
     }
 
@@ -435,30 +824,59 @@ public class TimerView extends StackPane {
         pauseButton.disableProperty().bind(timerClockWork.runningProperty().not());
         stopButton.disableProperty().bind(timerClockWork.runningProperty().not());
         aboutButton.disableProperty().bind(timerClockWork.runningProperty());
+        timerClockWork.getCore().addListener((TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) -> {
+            switch (newSnapshot.getState()) {
+                case NORMAL:
+                    scheduleAlarm(newSnapshot.getDeadline());
+                    break;
+                case PAUSED:
+                case IDLE:
+                    cancelAlarm();
+                    break;
+            }
+            pseudoClassStateChanged(PAUSED_PSEUDO_CLASS, newSnapshot.isPaused());
+            dialMirror.invalidate();
+            if (idleMeter != null) {
+                idleMeter.setIdle(!newSnapshot.isRunning());
+            }
+        });
         timerClockWork.finishedProperty().
                 addListener((ObservableValue<? extends Boolean> ov, Boolean oldValue, Boolean newValue) -> {
                     if (newValue) {
-                        playAlarm();
+                        // only if the alarm could not be scheduled in time
+                        if (alarmCue == null) {
+                            playAlarm();
+                        }
+                        alarmCue = null;
                     }
                 });
         timeLeftSliceArc.lengthProperty().bind(timerClockWork.milliSecondsLeftProperty().divide(10000.0));
+        // an InvalidationListener does not box the new value on every tick
         timerClockWork.milliSecondsLeftProperty().
-                addListener((ObservableValue<? extends Number> ov, Number t, Number t1) -> {
-                    String counterString = String.format("%02d:%02d",
-                            timerClockWork.minutesProperty().get(),
-                            timerClockWork.secondsProperty().get());
-                    if (timerClockWork.overdueRunningProperty().get()) {
-                        counterString = String.format("%02d:%02d", (timerClockWork.minutesProperty().get() - 59) * -1,
-                                (timerClockWork.secondsProperty().get() - 59) * -1);
-                    }
-                    counterText.setText(counterString);
+                addListener((Observable observable) -> {
+                    updateCounterText(timerClockWork.milliSecondsLeftProperty().get());
                 });
-        timeLeftBackgroundSliceArc.lengthProperty().bind(startLengthProperty.multiply(6));
         startLengthProperty.addListener((ObservableValue<? extends Number> ov, Number t, Number t1) -> {
             playClick();
         });
     }
 
+    private void updateCounterText(long millisLeft) {
+        // the time left only goes negative while overdue
+        int counterIndex = CounterFormat.index(millisLeft);
+        if (counterIndex != lastCounterIndex) {
+            lastCounterIndex = counterIndex;
+            counterText.setText(CounterFormat.text(counterIndex));
+        }
+    }
+
+    private Pane getSettingsPane() {
+        if (settingsPane == null) {
+            settingsPane = createAboutPane();
+        }
+        return settingsPane;
+    }
+
     private Pane createAboutPane() {
         Button closeButton = new Button("");
         closeButton.setGraphic(new MaterialDesignIconView(MaterialDesignIcon.WINDOW_CLOSE));
@@ -479,13 +897,20 @@ public class TimerView extends StackPane {
         });
         VBox infoBox = new VBox(appNameLabel, versionLabel, copyrightLabel, hyperlink);
         infoBox.setAlignment(Pos.CENTER);
+        if (Files.isDirectory(getJournalDirectory())) {
+            Hyperlink statisticsLink = new Hyperlink("Overrun Statistics");
+            statisticsLink.setOnAction((ActionEvent event) -> {
+                onShowOverrunStatistics();
+            });
+            infoBox.getChildren().add(statisticsLink);
+        }
         CheckBox overdueCheckBox = new CheckBox("Allow Overdue");
         CheckBox audioCheckBox = new CheckBox("Enable Sounds");
         closeButton.setOnAction((ActionEvent t) -> {
             hideModalMessage();
         });
-        timerClockWork.overdueOnProperty().bindBidirectional(overdueCheckBox.selectedProperty());
-        audioOnProperty().bindBidirectional(audioCheckBox.selectedProperty());
+        overdueCheckBox.selectedProperty().bindBidirectional(timerClockWork.overdueOnProperty());
+        audioCheckBox.selectedProperty().bindBidirectional(audioOnProperty());
         VBox optionsBox = new VBox(overdueCheckBox, audioCheckBox);
         optionsBox.setAlignment(Pos.CENTER);
         VBox aboutPane = new VBox(headerPane, infoBox, optionsBox, javaVersionLabel);
@@ -516,71 +941,15 @@ public class TimerView extends StackPane {
         counterText.getStyleClass().setAll("counter-text-overdue");
     }
 
-    private void bindLayoutProperties(final Pane root) {
-        clockButtonsBox.layoutXProperty().bind(centerXProperty.subtract(51));
-        clockButtonsBox.layoutYProperty().bind(centerYProperty.add(20));
-        appInfoBox.layoutXProperty().bind(centerXProperty.subtract(60));
-        appInfoBox.layoutYProperty().bind(centerYProperty.add(100));
-        scaleProperty.bind(root.heightProperty().divide(2.2));
-        centerXProperty.bind(root.widthProperty().divide(2));
-        centerYProperty.bind(root.heightProperty().divide(2));
-        counterText.layoutXProperty().bind(centerXProperty.subtract(counterText.getLayoutBounds().getWidth() / 2).subtract(64));
-        counterText.layoutYProperty().bind(centerYProperty.subtract(counterText.getLayoutBounds().getMinY()).subtract(10));
-        timeLeftSliceArc.centerXProperty().bind(centerXProperty);
-        timeLeftSliceArc.centerYProperty().bind(centerYProperty);
-        timeLeftBackgroundSliceArc.centerXProperty().bind(centerXProperty);
-        timeLeftBackgroundSliceArc.centerYProperty().bind(centerYProperty);
-        backgroundSliceArc.centerXProperty().bind(centerXProperty);
-        backgroundSliceArc.centerYProperty().bind(centerYProperty);
-        centerSliceArc.centerXProperty().bind(centerXProperty);
-        centerSliceArc.centerYProperty().bind(centerYProperty);
-        timeLeftSliceArc.radiusXProperty().bind(scaleProperty);
-        timeLeftSliceArc.radiusYProperty().bind(scaleProperty);
-        timeLeftBackgroundSliceArc.radiusXProperty().bind(scaleProperty);
-        timeLeftBackgroundSliceArc.radiusYProperty().bind(scaleProperty);
-        backgroundSliceArc.radiusProperty().bind(scaleProperty);
-    }
-
-    private void setTimeStartValue(MouseEvent mouseEvent) {
-        double x21 = centerXProperty.get();
-        double y21 = centerYProperty.get();
-        double x22 = mouseEvent.getSceneX();
-        double y22 = mouseEvent.getSceneY();
-        double dx = x22 - x21;
-        double dy = y22 - y21;
-        double angle = Math.toDegrees(Math.atan2(dx, dy)) + 180;
-        double time = Math.round(angle / 6);
-        startLengthProperty.set(time);
-    }
-
-    private Node createTick(int n) {
-        Rotate rotate = new Rotate(360 / 60 * n);
-        rotate.pivotXProperty().bind(centerXProperty);
-        rotate.pivotYProperty().bind(centerYProperty);
-        Line line = new Line();
-        line.getStyleClass().setAll("tick");
-        line.setStrokeLineCap(StrokeLineCap.ROUND);
-        line.getTransforms().add(rotate);
-        double endYfactor = (n % 5 == 0 ? 0.25 : 0.2);
-        if (n % 15 == 0) {
-            endYfactor = 0.3;
-            line.setStroke(Color.YELLOWGREEN);
-        }
-        line.strokeWidthProperty().bind(scaleProperty.multiply(0.03));
-        line.startXProperty().bind(centerXProperty);
-        line.startYProperty().bind(scaleProperty.multiply(0.2));
-        line.endXProperty().bind(centerXProperty);
-        line.endYProperty().bind(scaleProperty.multiply(endYfactor));
-        return line;
-    }
-
-    private Group createTickGroup() {
-        Group clockTickGroup = new Group();
-        for (int n = 0; n < 60; n++) {
-            Node tick = createTick(n);
-            clockTickGroup.getChildren().add(tick);
-        }
-        return clockTickGroup;
+    private void setTimeStartValue(double sceneX, double sceneY) {
+        // the timer may have been started since the input arrived
+        if (timerClockWork.runningProperty().get()) {
+            return;
+        }
+        double minutes = dialPane.startLengthAt(sceneX, sceneY);
+        if (minutes != startLengthProperty.get()) {
+            startLengthProperty.set(minutes);
+        }
     }
 
 }
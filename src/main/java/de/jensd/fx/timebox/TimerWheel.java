@@ -0,0 +1,333 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hierarchical timing wheel that drives any number of timers from a single
+ * thread.
+ * <p>
+ * Four levels of 64 slots cover about 46 hours at the default 10 ms tick.
+ * Scheduling and cancelling are O(1) and may be called from any thread, the
+ * requests are handed over to the driver through a lock-free queue. All
+ * timeouts that expire in the same tick are handed to the dispatcher as one
+ * batch, e.g. a single {@code Platform::runLater} per tick no matter how many
+ * timers ran out.
+ * <p>
+ * The wheel is either advanced by its own daemon thread ({@link #start()}) or
+ * by an external pulse calling {@link #advance(long)}, never both.
+ *
+ * @author Jens Deters
+ */
+public class TimerWheel {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long origin;
+    private final Executor dispatcher;
+    private final Timeout[][] wheels = new Timeout[LEVELS][WHEEL_SIZE];
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private long currentTick;
+    private volatile Thread driver;
+
+    public TimerWheel(Executor dispatcher) {
+        this(DEFAULT_TICK_MILLIS, dispatcher);
+    }
+
+    /**
+     * @param tickMillis the resolution of the wheel
+     * @param dispatcher runs the batch of timeouts expired in one tick
+     */
+    public TimerWheel(long tickMillis, Executor dispatcher) {
+        this(tickMillis, dispatcher, System.nanoTime());
+    }
+
+    /**
+     * @param origin the {@link System#nanoTime()} of tick 0, lets tests drive
+     * {@link #advance(long)} with exact times
+     */
+    TimerWheel(long tickMillis, Executor dispatcher, long origin) {
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.dispatcher = dispatcher;
+        this.origin = origin;
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task the task to run
+     * @param deadline the {@link System#nanoTime()} to run it at, it never runs
+     * earlier but may run up to one tick later
+     * @return a handle to cancel the task
+     */
+    public Timeout schedule(Runnable task, long deadline) {
+        long ticks = deadline - origin;
+        Timeout timeout = new Timeout(task, ticks <= 0 ? 0 : (ticks + tickNanos - 1) / tickNanos);
+        activeCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Keeps the given core moving on when its deadline passes. The wheel's
+     * dispatcher has to run on the thread that drives the core.
+     */
+    public void attach(TimerCore core) {
+        core.addListener(new CoreBinding(core));
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public synchronized void start() {
+        if (driver == null) {
+            driver = new Thread(this::runDriver, "timebox-timer-wheel");
+            driver.setDaemon(true);
+            driver.start();
+        }
+    }
+
+    public synchronized void shutdown() {
+        Thread thread = driver;
+        driver = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void runDriver() {
+        Thread self = Thread.currentThread();
+        while (driver == self) {
+            long nextTick = origin + currentTick * tickNanos;
+            long delay = nextTick - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(this, delay);
+                continue;
+            }
+            try {
+                advance(System.nanoTime());
+            } catch (RuntimeException ex) {
+                Logger.getLogger(TimerWheel.class.getName()).
+                        log(Level.SEVERE, null, ex);
+            }
+        }
+    }
+
+    /**
+     * Expires everything that is due at {@code now}. Must only be called by
+     * one thread at a time.
+     *
+     * @param now a {@link System#nanoTime()} value
+     */
+    public void advance(long now) {
+        transferCancelled();
+        transferPending();
+        long targetTick = (now - origin) / tickNanos;
+        while (currentTick <= targetTick) {
+            List<Timeout> expired = expireTick();
+            currentTick++;
+            if (expired != null) {
+                dispatcher.execute(() -> {
+                    for (Timeout timeout : expired) {
+                        timeout.task.run();
+                    }
+                });
+            }
+        }
+    }
+
+    private List<Timeout> expireTick() {
+        int slot = (int) (currentTick & WHEEL_MASK);
+        if (slot == 0) {
+            cascade(1);
+        }
+        Timeout timeout = wheels[0][slot];
+        if (timeout == null) {
+            return null;
+        }
+        wheels[0][slot] = null;
+        List<Timeout> expired = new ArrayList<>();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            if (timeout.expire()) {
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+        return expired.isEmpty() ? null : expired;
+    }
+
+    private void cascade(int level) {
+        int slot = (int) ((currentTick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        if (slot == 0 && level + 1 < LEVELS) {
+            cascade(level + 1);
+        }
+        Timeout timeout = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isPending()) {
+                insert(timeout);
+            }
+        }
+    }
+
+    private void transferCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.level >= 0) {
+                unlink(timeout);
+            }
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long deadlineTick = Math.max(timeout.deadlineTick, currentTick);
+        long delta = deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << ((level + 1) * WHEEL_BITS)) {
+            level++;
+        }
+        if (delta >= 1L << (LEVELS * WHEEL_BITS)) {
+            // beyond the top level, park it in the farthest slot and let it cascade again
+            deadlineTick = currentTick + (1L << (LEVELS * WHEEL_BITS)) - 1;
+        }
+        int slot = (int) ((deadlineTick >>> (level * WHEEL_BITS)) & WHEEL_MASK);
+        Timeout head = wheels[level][slot];
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheels[level][slot] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else if (wheels[timeout.level][timeout.slot] == timeout) {
+            wheels[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.next = null;
+        timeout.prev = null;
+        timeout.level = -1;
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineTick;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private Timeout next;
+        private Timeout prev;
+        private int level = -1;
+        private int slot;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public boolean isPending() {
+            return state.get() == PENDING;
+        }
+
+        /**
+         * @return false if the task has already been dispatched or cancelled
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(PENDING, CANCELLED)) {
+                activeCount.decrementAndGet();
+                cancelledTimeouts.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        private boolean expire() {
+            level = -1;
+            if (state.compareAndSet(PENDING, EXPIRED)) {
+                activeCount.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private class CoreBinding implements TimerListener {
+
+        private final TimerCore core;
+        private Timeout timeout;
+
+        CoreBinding(TimerCore core) {
+            this.core = core;
+        }
+
+        @Override
+        public void stateChanged(TimerSnapshot oldSnapshot, TimerSnapshot newSnapshot) {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+            if (newSnapshot.getState() == TimerCore.State.NORMAL) {
+                // the wheel runs on System.nanoTime(), the core on its own time source
+                long delay = newSnapshot.getDeadline() - core.getTimeSource().nanoTime();
+                timeout = schedule(core::update, System.nanoTime() + delay);
+            }
+        }
+    }
+}
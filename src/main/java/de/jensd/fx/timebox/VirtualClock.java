@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link TimeSource} that only moves when told to.
+ * <p>
+ * Makes the timer deterministic: an hour of overdue is one call to
+ * {@link #advance(long, TimeUnit)}, and a run repeats exactly with the same
+ * inputs. Starts at an origin close to the overflow of a long, so the deadline
+ * arithmetic is exercised the way {@link System#nanoTime()} may require.
+ *
+ * @author Jens Deters
+ */
+public class VirtualClock implements TimeSource {
+
+    private long now;
+
+    public VirtualClock() {
+        this(Long.MAX_VALUE - TimeUnit.HOURS.toNanos(1));
+    }
+
+    public VirtualClock(long origin) {
+        this.now = origin;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    public void advance(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("time does not go back: " + nanos);
+        }
+        now += nanos;
+    }
+
+    public void advance(long duration, TimeUnit unit) {
+        advance(unit.toNanos(duration));
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Loopback load test of a {@link StateBroadcaster}.
+ * <p>
+ * Connects thousands of simulated subscribers, all read by one selector
+ * thread, drives a {@link TimerCore} through start, pause, continue and stop,
+ * or toggles its overdue setting during a box, and reports how long the frames took to arrive and how many were replaced
+ * by a later state before a subscriber could take them. Fails if a
+ * subscriber misses the last state or gets a frame out of order.
+ * <p>
+ * The load is kept small for the regular test run, the system properties
+ * {@code broadcast.subscribers}, {@code broadcast.transitions} and
+ * {@code broadcast.interval} (ms) raise it, see the broadcastLoadTest task.
+ *
+ * @author Jens Deters
+ */
+public class BroadcastLoadTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BroadcastLoadTest.class.getName());
+
+    private final int subscriberCount = Integer.getInteger("broadcast.subscribers", 200);
+    private final int transitions = Integer.getInteger("broadcast.transitions", 100);
+    private final long intervalMillis = Long.getLong("broadcast.interval", 5);
+    private final long[] publishedAt = new long[transitions + 2];
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile long framesReceived;
+    private volatile long framesCoalesced;
+    private volatile long framesOutOfOrder;
+    private final Subscriber[] subscribers = new Subscriber[subscriberCount];
+    private long expectedSequence;
+
+    @Test
+    public void everySubscriberGetsTheLastState() throws Exception {
+        TimerCore core = new TimerCore();
+        core.setDurationMillis(TimeUnit.MINUTES.toMillis(10));
+        run(core, (int i) -> {
+            switch (i % 4) {
+                case 0:
+                    core.start();
+                    break;
+                case 1:
+                    core.pause();
+                    break;
+                case 2:
+                    core.resume();
+                    break;
+                default:
+                    core.stop();
+            }
+        });
+    }
+
+    /**
+     * The followers decide on their own whether a box goes overdue, a change
+     * of the setting has to reach them before the deadline does.
+     */
+    @Test
+    public void everySubscriberGetsTheLastOverdueSetting() throws Exception {
+        TimerCore core = new TimerCore();
+        core.setDurationMillis(TimeUnit.MINUTES.toMillis(10));
+        run(core, (int i) -> {
+            if (i == 0) {
+                core.start();
+            } else {
+                core.setOverdueOn(!core.isOverdueOn());
+            }
+        });
+        for (Subscriber subscriber : subscribers) {
+            assertEquals("overdue setting of a subscriber", core.isOverdueOn(), subscriber.overdueOn);
+        }
+    }
+
+    /**
+     * Connects the subscribers, then makes as many changes as there are
+     * transitions, each one published with the next sequence.
+     */
+    private void run(TimerCore core, IntConsumer change) throws Exception {
+        StateBroadcaster broadcaster = new StateBroadcaster(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        // the state the core starts with is sequence 1, every change counts up by one
+        expectedSequence = core.getPublished().getSequence();
+        publishedAt[(int) expectedSequence] = System.nanoTime();
+        broadcaster.attach(core);
+        broadcaster.start();
+        Selector selector = Selector.open();
+        for (int i = 0; i < subscriberCount; i++) {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(broadcaster.getLocalAddress());
+            subscribers[i] = new Subscriber();
+            channel.register(selector, SelectionKey.OP_CONNECT, subscribers[i]);
+        }
+        Thread reader = new Thread(() -> read(selector), "load-test-subscribers");
+        reader.setDaemon(true);
+        reader.start();
+        awaitUpToDate(TimeUnit.SECONDS.toNanos(30));
+        LOGGER.info(String.format("%d subscribers connected", broadcaster.getSubscriberCount()));
+        latency.reset();
+        long start = System.nanoTime();
+        for (int i = 0; i < transitions; i++) {
+            publishedAt[(int) expectedSequence + 1] = System.nanoTime();
+            expectedSequence++;
+            change.accept(i);
+            TimeUnit.MILLISECONDS.sleep(intervalMillis);
+        }
+        boolean complete = awaitUpToDate(TimeUnit.SECONDS.toNanos(30));
+        long elapsed = System.nanoTime() - start;
+        broadcaster.close();
+        selector.close();
+        LOGGER.info(String.format("%d transitions in %d ms, frames received %d, replaced by a later state %d, out of order %d,"
+                + " delivery latency us: mean %.0f, p50 %d, p99 %d, max %d",
+                transitions, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                framesReceived, framesCoalesced, framesOutOfOrder,
+                latency.getMean() / 1000,
+                TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMicros(latency.getValueAtPercentile(99)),
+                TimeUnit.NANOSECONDS.toMicros(latency.getMax())));
+        assertTrue(countUpToDate() + " of " + subscriberCount + " subscribers up to date", complete);
+        assertEquals("frames out of order", 0, framesOutOfOrder);
+    }
+
+    private boolean awaitUpToDate(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (countUpToDate() < subscriberCount) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return true;
+    }
+
+    private int countUpToDate() {
+        int upToDate = 0;
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.sequence == expectedSequence) {
+                upToDate++;
+            }
+        }
+        return upToDate;
+    }
+
+    private void read(Selector selector) {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    Subscriber subscriber = (Subscriber) key.attachment();
+                    if (key.isConnectable()) {
+                        channel.finishConnect();
+                        key.interestOps(SelectionKey.OP_READ);
+                    } else if (key.isReadable()) {
+                        if (channel.read(subscriber.frame) < 0) {
+                            key.cancel();
+                            channel.close();
+                            continue;
+                        }
+                        while (subscriber.frame.position() >= StateFrame.SIZE) {
+                            subscriber.frame.flip();
+                            onFrame(subscriber, StateFrame.sequence(subscriber.frame), StateFrame.isOverdueOn(subscriber.frame),
+                                    System.nanoTime());
+                            subscriber.frame.position(StateFrame.SIZE);
+                            subscriber.frame.compact();
+                        }
+                    }
+                }
+            }
+        } catch (ClosedSelectorException ex) {
+            // the test is over
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, null, ex);
+        }
+    }
+
+    private void onFrame(Subscriber subscriber, long sequence, boolean overdueOn, long now) {
+        framesReceived++;
+        if (sequence <= subscriber.sequence) {
+            framesOutOfOrder++;
+            return;
+        }
+        if (subscriber.sequence > 0) {
+            framesCoalesced += sequence - subscriber.sequence - 1;
+        }
+        latency.record(now - publishedAt[(int) sequence]);
+        subscriber.overdueOn = overdueOn;
+        subscriber.sequence = sequence;
+    }
+
+    private static final class Subscriber {
+
+        private final ByteBuffer frame = ByteBuffer.allocate(StateFrame.SIZE * 4);
+        private volatile boolean overdueOn;
+        private volatile long sequence;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.assertEquals;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Appends to a {@link SessionJournal} with small segments and reads the
+ * records back with {@link JournalReader}.
+ *
+ * @author Jens Deters
+ */
+public class SessionJournalTest {
+
+    private static final int SEGMENT_RECORDS = 16;
+    private static final int APPENDERS = 4;
+    private static final int ROUNDS = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsSurviveRotationAndClose() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        int count = 2 * SEGMENT_RECORDS + 5;
+        SessionJournal journal = new SessionJournal(directory, SEGMENT_RECORDS, 5);
+        for (int i = 0; i < count; i++) {
+            journal.append(7, JournalEvent.values()[i % JournalEvent.values().length], 60000 + i, -i);
+        }
+        journal.close();
+        List<Path> segments = JournalReader.segments(directory);
+        assertEquals("segments", 3, segments.size());
+        // the last one is cut down to its records
+        assertEquals("size of the last segment", 5L * SessionJournal.RECORD_SIZE, Files.size(segments.get(2)));
+        List<Long> millisLeft = new ArrayList<>();
+        JournalReader.replay(directory, (long timestamp, long timerId, JournalEvent event, long durationMillis, long left) -> {
+            int i = millisLeft.size();
+            assertEquals(7, timerId);
+            assertEquals(JournalEvent.values()[i % JournalEvent.values().length], event);
+            assertEquals(60000 + i, durationMillis);
+            millisLeft.add(left);
+        });
+        assertEquals("records read back", count, millisLeft.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(-i, (long) millisLeft.get(i));
+        }
+    }
+
+    @Test
+    public void nextRunStartsANewSegment() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        SessionJournal first = new SessionJournal(directory, SEGMENT_RECORDS, 5);
+        first.append(1, JournalEvent.START, 60000, 60000);
+        first.close();
+        // a run without records leaves no file
+        new SessionJournal(directory, SEGMENT_RECORDS, 5).close();
+        SessionJournal third = new SessionJournal(directory, SEGMENT_RECORDS, 5);
+        third.append(1, JournalEvent.STOP, 60000, 1000);
+        third.close();
+        assertEquals("segments", 2, JournalReader.segments(directory).size());
+        List<JournalEvent> events = new ArrayList<>();
+        JournalReader.replay(directory, (long timestamp, long timerId, JournalEvent event, long durationMillis, long left) -> {
+            events.add(event);
+        });
+        assertEquals(2, events.size());
+        assertEquals(JournalEvent.START, events.get(0));
+        assertEquals(JournalEvent.STOP, events.get(1));
+    }
+
+    /**
+     * Closing while other threads append must neither crash nor tear a
+     * record: every appender has written a gapless prefix of its records.
+     */
+    @Test
+    public void closeWhileAppending() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            closeWhileAppending(folder.newFolder("round-" + round).toPath());
+        }
+    }
+
+    private void closeWhileAppending(Path directory) throws Exception {
+        SessionJournal journal = new SessionJournal(directory, 1024, 1);
+        CountDownLatch started = new CountDownLatch(APPENDERS);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] appenders = new Thread[APPENDERS];
+        for (int a = 0; a < APPENDERS; a++) {
+            long timerId = a;
+            appenders[a] = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < 100_000; i++) {
+                    journal.append(timerId, JournalEvent.START, 60000, i);
+                }
+            });
+            appenders[a].setUncaughtExceptionHandler((Thread thread, Throwable ex) -> failure.set(ex));
+            appenders[a].start();
+        }
+        started.await();
+        Thread.sleep(2);
+        journal.close();
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError("append failed", failure.get());
+        }
+        long[] nextMillisLeft = new long[APPENDERS];
+        JournalReader.replay(directory, (long timestamp, long timerId, JournalEvent event, long durationMillis, long left) -> {
+            assertEquals(JournalEvent.START, event);
+            assertEquals(60000, durationMillis);
+            assertEquals("record of appender " + timerId, nextMillisLeft[(int) timerId], left);
+            nextMillisLeft[(int) timerId]++;
+        });
+    }
+}
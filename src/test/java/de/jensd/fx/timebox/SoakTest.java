@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import com.sun.javafx.application.PlatformImpl;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javafx.animation.Animation;
+import javafx.application.Platform;
+import javafx.beans.Observable;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.layout.Region;
+import javafx.util.Duration;
+import org.junit.AfterClass;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Soak test of the timer lifecycle, days of timeboxes on a
+ * {@link VirtualClock}.
+ * <p>
+ * Runs thousands of cycles of start, countdown, pause, overdue for up to
+ * three hours and stop through one {@link TimerClockWork}, with the counter
+ * and alarm listeners the view has, ticking at 60 Hz around every
+ * transition. Every start and stop replays the same two
+ * {@link CounterTransition}s and every overdue box shows and hides the same
+ * {@link ModalDimmer}, as the view does. Fails if the heap retained after a
+ * full collection grows, if a tick at the end costs noticeably more than one
+ * at the beginning, if the clock face does not follow an animation, or if
+ * an animation is still running at the end.
+ * <p>
+ * The animations run on the JavaFX toolkit, headless with Monocle. The
+ * cycles are run in batches on the FX thread, between the batches the
+ * pulses run the animations left playing. The regular test run uses 2000
+ * cycles, the system properties {@code soak.cycles} and
+ * {@code soak.maxHeapGrowth} (KB) change them, see the soakTest task.
+ *
+ * @author Jens Deters
+ */
+public class SoakTest {
+
+    private static final Logger LOGGER = Logger.getLogger(SoakTest.class.getName());
+    private static final long PULSE_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+    private static final int TICKS_PER_PHASE = 120;
+    private static final int CYCLES_PER_BATCH = 100;
+    private static final Duration ANIMATION_DURATION = Duration.millis(550);
+    private static final long ANIMATION_TIMEOUT_MILLIS = 5000;
+    /**
+     * A tick may get this much slower before it counts as growth, timing noise
+     * below it is ignored.
+     */
+    private static final double MAX_TICK_GROWTH = 1.5;
+    private static final long TICK_NOISE_NANOS = 100;
+
+    private final int cycles = Integer.getInteger("soak.cycles", 2000);
+    private final long maxHeapGrowth = Long.getLong("soak.maxHeapGrowth", 64) * 1024;
+    private final VirtualClock clock = new VirtualClock();
+    private final TimerCore core = new TimerCore(clock);
+    private final TimerClockWork clockWork = TimerClockWork.driven(core);
+    private final long[] tickNanos = new long[cycles];
+    private CounterTransition startCounter;
+    private CounterTransition stopCounter;
+    private ModalDimmer modalDimmer;
+    private int lastCounterIndex = -1;
+    private String counterText;
+    private long alarms;
+    private long ticks;
+
+    @BeforeClass
+    public static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        PlatformImpl.startup(started::countDown);
+        started.await();
+    }
+
+    @AfterClass
+    public static void stopToolkit() {
+        Platform.exit();
+    }
+
+    @Test
+    public void heapAndTickCostStayFlat() throws Exception {
+        onFxThread(() -> {
+            createViewParts();
+            return null;
+        });
+        int warmup = Math.max(1, cycles / 10);
+        long start = System.nanoTime();
+        runCycles(0, warmup);
+        awaitAnimationsStopped();
+        long heapBefore = retainedHeap();
+        runCycles(warmup, cycles);
+        onFxThread(() -> {
+            if (modalDimmer.isVisible()) {
+                modalDimmer.hideModalMessage();
+            }
+            return null;
+        });
+        assertTrue("an animation is still running", awaitAnimationsStopped());
+        assertFalse("the dimmer is still shown", onFxThread(modalDimmer::isVisible));
+        assertTrue("the dimmer keeps its message", onFxThread(modalDimmer.getChildren()::isEmpty));
+        long heapAfter = retainedHeap();
+        long elapsed = System.nanoTime() - start;
+        long ticksBefore = median(Arrays.copyOfRange(tickNanos, warmup, Math.min(cycles, 2 * warmup)));
+        long ticksAfter = median(Arrays.copyOfRange(tickNanos, cycles - warmup, cycles));
+        boolean heapGrew = heapAfter - heapBefore > maxHeapGrowth;
+        boolean ticksGrew = ticksAfter > ticksBefore * MAX_TICK_GROWTH && ticksAfter - ticksBefore > TICK_NOISE_NANOS;
+        LOGGER.info(String.format("%d cycles, %.0f virtual hours, %d ticks, %d alarms in %d ms", cycles,
+                (clock.nanoTime() - new VirtualClock().nanoTime()) / 3.6e12, ticks, alarms, TimeUnit.NANOSECONDS.toMillis(elapsed)));
+        LOGGER.info(String.format("retained heap %d KB -> %d KB (%+d KB), tick %d ns -> %d ns", heapBefore / 1024,
+                heapAfter / 1024, (heapAfter - heapBefore) / 1024, ticksBefore, ticksAfter));
+        assertFalse("retained heap grew by " + (heapAfter - heapBefore) / 1024 + " KB", heapGrew);
+        assertFalse("tick grew from " + ticksBefore + " ns to " + ticksAfter + " ns", ticksGrew);
+    }
+
+    /**
+     * What the view listens to on every tick and every box, and the
+     * animations it replays.
+     */
+    private void createViewParts() {
+        clockWork.milliSecondsLeftProperty().addListener((Observable observable) -> {
+            int counterIndex = CounterFormat.index(clockWork.milliSecondsLeftProperty().get());
+            if (counterIndex != lastCounterIndex) {
+                lastCounterIndex = counterIndex;
+                counterText = CounterFormat.text(counterIndex);
+            }
+        });
+        clockWork.finishedProperty().
+                addListener((ObservableValue<? extends Boolean> ov, Boolean oldValue, Boolean newValue) -> {
+                    if (newValue) {
+                        alarms++;
+                    }
+                });
+        startCounter = new CounterTransition(ANIMATION_DURATION, clockWork.milliSecondsLeftProperty());
+        stopCounter = new CounterTransition(ANIMATION_DURATION, clockWork.milliSecondsLeftProperty());
+        modalDimmer = new ModalDimmer();
+    }
+
+    private void runCycles(int from, int to) throws Exception {
+        for (int batch = from; batch < to; batch += CYCLES_PER_BATCH) {
+            int batchEnd = Math.min(to, batch + CYCLES_PER_BATCH);
+            int batchStart = batch;
+            onFxThread(() -> {
+                for (int cycle = batchStart; cycle < batchEnd; cycle++) {
+                    runCycle(cycle);
+                }
+                return null;
+            });
+        }
+    }
+
+    private void runCycle(int cycle) {
+        long minutes = 1 + cycle % 60;
+        boolean overdue = cycle % 3 == 0;
+        long tickTime = 0;
+        if (modalDimmer.isVisible()) {
+            modalDimmer.hideModalMessage();
+        }
+        clockWork.overdueOnProperty().set(overdue);
+        clockWork.setStartTimeMinutes((int) minutes);
+        // the start animation runs to its end before the timer starts
+        stopCounter.stop();
+        startCounter.playTo(TimeUnit.MINUTES.toMillis(minutes));
+        startCounter.jumpTo(startCounter.getCycleDuration());
+        checkClockFace(cycle);
+        startCounter.stop();
+        clockWork.start();
+        tickTime += tick(TICKS_PER_PHASE);
+        if (cycle % 5 == 0) {
+            clockWork.pause();
+            clock.advance(minutes, TimeUnit.MINUTES);
+            clockWork.tick();
+            clockWork.continuePlay();
+            tickTime += tick(TICKS_PER_PHASE);
+        }
+        // just before the deadline, through it
+        clock.advance(core.getSnapshot().getDeadline() - clock.nanoTime() - TimeUnit.SECONDS.toNanos(1));
+        tickTime += tick(TICKS_PER_PHASE);
+        if (overdue) {
+            // up to three hours, past the 99:59 of the counter
+            clock.advance(cycle % 7 * 30, TimeUnit.MINUTES);
+            tickTime += tick(TICKS_PER_PHASE);
+            if (counterText == null || !core.isRunning()) {
+                throw new IllegalStateException("overdue stopped in cycle " + cycle);
+            }
+        }
+        // the stop animation is left playing, the next start stops it
+        clockWork.stop();
+        stopCounter.playTo(0);
+        stopCounter.jumpTo(ANIMATION_DURATION.divide(2));
+        checkClockFace(cycle);
+        if (overdue) {
+            // a new message each time, like the overrun summary
+            modalDimmer.showModalMessage(new Region());
+        }
+        clock.advance(1, TimeUnit.MINUTES);
+        tickNanos[cycle] = tickTime / ((overdue ? 3 : 2) + (cycle % 5 == 0 ? 1 : 0)) / TICKS_PER_PHASE;
+    }
+
+    /**
+     * The animations drive the time left as well, the face has to follow.
+     */
+    private void checkClockFace(int cycle) {
+        long face = clockWork.getClockFace();
+        if (ClockFace.millisLeft(face) != clockWork.milliSecondsLeftProperty().get()) {
+            throw new IllegalStateException("clock face " + ClockFace.toString(face) + " behind the animation in cycle " + cycle);
+        }
+    }
+
+    /**
+     * @return the nanoseconds the ticks took
+     */
+    private long tick(int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            clock.advance(PULSE_NANOS);
+            clockWork.tick();
+        }
+        ticks += count;
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Lets the pulses finish the animations left playing by the last cycles.
+     *
+     * @return true if none is running any more
+     */
+    private boolean awaitAnimationsStopped() throws Exception {
+        long deadline = System.currentTimeMillis() + ANIMATION_TIMEOUT_MILLIS;
+        while (!onFxThread(this::animationsStopped)) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    private boolean animationsStopped() {
+        // the dimmer's timelines are its own, a hidden and emptied dimmer has finished them
+        return startCounter.getStatus() == Animation.Status.STOPPED
+                && stopCounter.getStatus() == Animation.Status.STOPPED
+                && (!modalDimmer.isVisible() || modalDimmer.getOpacity() == 1);
+    }
+
+    private static <T> T onFxThread(Callable<T> callable) throws Exception {
+        FutureTask<T> task = new FutureTask<>(callable);
+        Platform.runLater(task);
+        return task.get();
+    }
+
+    private static long retainedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long retained = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            retained = Math.min(retained, memory.getHeapMemoryUsage().getUsed());
+        }
+        return retained;
+    }
+
+    private static long median(long[] values) {
+        Arrays.sort(values);
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+}
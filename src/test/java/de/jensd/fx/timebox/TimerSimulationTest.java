@@ -0,0 +1,333 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import de.jensd.fx.timebox.TimerCore.State;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import javafx.beans.value.ObservableValue;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Randomized simulation of a {@link TimerClockWork} on a {@link VirtualClock}.
+ * <p>
+ * Every scenario drives one timer through random starts, pauses,
+ * continues, stops, overdue switches and states taken over from a leader,
+ * with the clock jumping by anything from a nanosecond to half an hour and
+ * often right onto the deadline. After every step the properties are checked
+ * against a plain model of the countdown: {@code finishedProperty()} rises
+ * once per box that runs out, {@code modeProperty()} is overdue exactly when
+ * the box is, {@code milliSecondsLeftProperty()} holds the exact time
+ * left and the {@link ClockFace} read by other threads matches the
+ * properties. Hours of timeboxes run in seconds.
+ * <p>
+ * The scenarios start from a fixed set of seeds, so every run checks the
+ * same ones. A failure reports the seed and the last actions of its
+ * scenario, {@code gradle test -Psimulation.seed=<seed>} runs it alone.
+ *
+ * @author Jens Deters
+ */
+public class TimerSimulationTest {
+
+    private static final long[] SEEDS = {0L, 20121016L, 7_000_000_000L};
+    private static final int SCENARIOS_PER_SEED = 2000;
+    private static final int STEPS = 200;
+    private static final int MAX_REPORTED_FAILURES = 10;
+    private static final int HISTORY = 8;
+    private static final long MAX_DURATION_MILLIS = TimeUnit.MINUTES.toMillis(60);
+
+    private final StringBuilder report = new StringBuilder();
+    private int failures;
+    private long virtualNanos;
+
+    @Test
+    public void propertiesFollowTheModel() {
+        Long repeatSeed = Long.getLong("simulation.seed");
+        long start = System.nanoTime();
+        int scenarios = 0;
+        if (repeatSeed != null) {
+            new Scenario(repeatSeed).run();
+            scenarios++;
+        } else {
+            for (long seed : SEEDS) {
+                for (int i = 0; i < SCENARIOS_PER_SEED; i++) {
+                    new Scenario(seed + i).run();
+                    scenarios++;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Logger.getLogger(TimerSimulationTest.class.getName()).info(String.format("%d scenarios of %d steps, %.0f virtual hours in %d ms, %d failed",
+                scenarios, STEPS, virtualNanos / 3.6e12, TimeUnit.NANOSECONDS.toMillis(elapsed), failures));
+        assertEquals(report.toString(), 0, failures);
+    }
+
+    private class Scenario {
+
+        private final long scenarioSeed;
+        private final Random random;
+        private final VirtualClock clock = new VirtualClock();
+        private final TimerCore core = new TimerCore(clock);
+        private final TimerClockWork clockWork = TimerClockWork.driven(core);
+        private final Deque<String> history = new ArrayDeque<>();
+
+        // the model
+        private State state = State.IDLE;
+        private boolean overdue;
+        private long nanosLeft;
+        private int expectedFinishedRises;
+
+        // what the properties did
+        private int finishedRises;
+        private int modeChanges;
+
+        Scenario(long scenarioSeed) {
+            this.scenarioSeed = scenarioSeed;
+            this.random = new Random(scenarioSeed);
+        }
+
+        void run() {
+            clockWork.finishedProperty().
+                    addListener((ObservableValue<? extends Boolean> ov, Boolean oldValue, Boolean newValue) -> {
+                        if (newValue) {
+                            finishedRises++;
+                        }
+                    });
+            clockWork.modeProperty().
+                    addListener((ObservableValue<? extends TimerClockWork.Mode> ov, TimerClockWork.Mode oldMode, TimerClockWork.Mode newMode) -> {
+                        modeChanges++;
+                    });
+            clockWork.overdueOnProperty().set(random.nextBoolean());
+            for (int step = 0; step < STEPS; step++) {
+                act();
+                if (!check("after " + history.peekLast())) {
+                    return;
+                }
+                State stateBefore = state;
+                int modeChangesBefore = modeChanges;
+                advance();
+                clockWork.tick();
+                if (!check("after tick")) {
+                    return;
+                }
+                if (state == stateBefore && modeChanges != modeChangesBefore) {
+                    fail("mode changed without a transition");
+                    return;
+                }
+            }
+        }
+
+        private void act() {
+            int action = random.nextInt(20);
+            if (action < 4) {
+                long duration = random.nextInt(10) == 0 ? random.nextInt(2000) : 1 + (long) (random.nextDouble() * MAX_DURATION_MILLIS);
+                record("start " + duration + " ms");
+                clockWork.setStartTimeMillis((int) duration);
+                clockWork.start();
+                enter(State.NORMAL, false, TimeUnit.MILLISECONDS.toNanos(duration));
+            } else if (action < 8) {
+                record("pause");
+                clockWork.pause();
+                if (state == State.NORMAL || state == State.OVERDUE) {
+                    enter(State.PAUSED, overdue, nanosLeft);
+                }
+            } else if (action < 12) {
+                record("continue");
+                clockWork.continuePlay();
+                if (state == State.PAUSED) {
+                    enter(overdue ? State.OVERDUE : State.NORMAL, overdue, nanosLeft);
+                }
+            } else if (action < 14) {
+                record("stop");
+                clockWork.stop();
+                if (state != State.IDLE) {
+                    enter(State.IDLE, false, 0);
+                }
+            } else if (action < 16) {
+                boolean overdueOn = !clockWork.overdueOnProperty().get();
+                record("overdue " + (overdueOn ? "on" : "off"));
+                clockWork.overdueOnProperty().set(overdueOn);
+            } else if (action < 18) {
+                follow();
+            } else {
+                record("nothing");
+            }
+        }
+
+        /**
+         * Takes over a random state of a leader, always a different one than
+         * the current, so it is never ignored as a clock difference.
+         */
+        private void follow() {
+            State[] states = State.values();
+            State leaderState;
+            do {
+                leaderState = states[random.nextInt(states.length)];
+            } while (leaderState == state);
+            long now = clock.nanoTime();
+            long left = TimeUnit.MILLISECONDS.toNanos(1 + (long) (random.nextDouble() * MAX_DURATION_MILLIS));
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(left) + random.nextInt(60000);
+            TimerSnapshot leader;
+            switch (leaderState) {
+                case NORMAL:
+                    leader = new TimerSnapshot(State.NORMAL, false, durationMillis, now + left, 0);
+                    break;
+                case OVERDUE:
+                    left = -left;
+                    leader = new TimerSnapshot(State.OVERDUE, true, durationMillis, now + left, 0);
+                    break;
+                case PAUSED:
+                    boolean leaderOverdue = random.nextBoolean();
+                    left = leaderOverdue ? -left : left;
+                    leader = new TimerSnapshot(State.PAUSED, leaderOverdue, durationMillis, now + left, now);
+                    break;
+                case FINISHED:
+                    left = 0;
+                    leader = new TimerSnapshot(State.FINISHED, false, durationMillis, now, 0);
+                    break;
+                default:
+                    left = 0;
+                    leader = TimerSnapshot.IDLE;
+            }
+            record("follow " + leader);
+            core.follow(leader);
+            enter(leaderState, leader.isOverdue(), left);
+        }
+
+        private void advance() {
+            long nanos;
+            switch (random.nextInt(6)) {
+                case 0:
+                    nanos = random.nextInt(100) * 1_000_000L;
+                    break;
+                case 1:
+                    nanos = (long) (random.nextDouble() * TimeUnit.SECONDS.toNanos(10));
+                    break;
+                case 2:
+                    nanos = (long) (random.nextDouble() * TimeUnit.MINUTES.toNanos(30));
+                    break;
+                default:
+                    // onto the deadline or a nanosecond next to it
+                    nanos = state == State.NORMAL ? Math.max(0, nanosLeft + random.nextInt(3) - 1) : random.nextInt(1000);
+            }
+            record("advance " + nanos + " ns");
+            clock.advance(nanos);
+            virtualNanos += nanos;
+            if (state == State.NORMAL || state == State.OVERDUE) {
+                nanosLeft -= nanos;
+            }
+            if (state == State.NORMAL && nanosLeft <= 0) {
+                // noticed by the next tick
+                if (clockWork.overdueOnProperty().get()) {
+                    enter(State.OVERDUE, true, nanosLeft);
+                } else {
+                    enter(State.FINISHED, false, 0);
+                }
+            }
+        }
+
+        private void enter(State newState, boolean newOverdue, long newNanosLeft) {
+            if ((newState == State.FINISHED && state != State.FINISHED)
+                    || (newState == State.OVERDUE && state == State.NORMAL)) {
+                expectedFinishedRises++;
+            }
+            state = newState;
+            overdue = newOverdue;
+            nanosLeft = newNanosLeft;
+        }
+
+        private boolean check(String when) {
+            if (core.getState() != state) {
+                return fail(when + ": state " + core.getState() + ", expected " + state);
+            }
+            long face = clockWork.getClockFace();
+            if (face != ClockFace.pack(core.getState(), clockWork.runningProperty().get(), clockWork.finishedProperty().get(),
+                    clockWork.modeProperty().get(), clockWork.overdueRunningProperty().get(), clockWork.milliSecondsLeftProperty().get())) {
+                return fail(when + ": " + ClockFace.toString(face) + " does not match the properties");
+            }
+            boolean running = state == State.NORMAL || state == State.OVERDUE || state == State.PAUSED;
+            if (clockWork.runningProperty().get() != running) {
+                return fail(when + ": running " + clockWork.runningProperty().get() + ", expected " + running);
+            }
+            if (clockWork.finishedProperty().get() != (state == State.FINISHED)) {
+                return fail(when + ": finished " + clockWork.finishedProperty().get() + " in " + state);
+            }
+            if (finishedRises != expectedFinishedRises) {
+                return fail(when + ": finished rose " + finishedRises + " times, expected " + expectedFinishedRises);
+            }
+            TimerClockWork.Mode expectedMode = running && overdue ? TimerClockWork.Mode.OVERDUE : TimerClockWork.Mode.NORMAL;
+            if ((running || state == State.IDLE) && clockWork.modeProperty().get() != expectedMode) {
+                return fail(when + ": mode " + clockWork.modeProperty().get() + ", expected " + expectedMode);
+            }
+            if (running && clockWork.overdueRunningProperty().get() != overdue) {
+                return fail(when + ": overdue running " + clockWork.overdueRunningProperty().get() + ", expected " + overdue);
+            }
+            if (!"after tick".equals(when) && state != State.PAUSED) {
+                // the time left is only sampled by a tick
+                return true;
+            }
+            long millisLeft = clockWork.milliSecondsLeftProperty().get();
+            long expectedMillisLeft;
+            switch (state) {
+                case NORMAL:
+                    expectedMillisLeft = Math.max(0, Math.floorDiv(nanosLeft, 1_000_000L));
+                    break;
+                case OVERDUE:
+                case PAUSED:
+                    expectedMillisLeft = Math.floorDiv(nanosLeft, 1_000_000L);
+                    break;
+                case FINISHED:
+                    expectedMillisLeft = 0;
+                    break;
+                default:
+                    return true;
+            }
+            if (millisLeft != expectedMillisLeft) {
+                return fail(when + ": " + millisLeft + " ms left, expected " + expectedMillisLeft + " in " + state);
+            }
+            if (state == State.OVERDUE && millisLeft > 0) {
+                return fail(when + ": overdue with " + millisLeft + " ms left");
+            }
+            if (clockWork.milliSecondsProperty().get() != Math.floorMod(millisLeft, 1000L)
+                    || clockWork.secondsProperty().get() != Math.floorMod(Math.floorDiv(millisLeft, 1000L), 60L)
+                    || clockWork.minutesProperty().get() != Math.floorMod(Math.floorDiv(millisLeft, 60000L), 60L)) {
+                return fail(when + ": " + clockWork.minutesProperty().get() + ":" + clockWork.secondsProperty().get()
+                        + "." + clockWork.milliSecondsProperty().get() + " does not match " + millisLeft + " ms left");
+            }
+            return true;
+        }
+
+        private void record(String action) {
+            if (history.size() == HISTORY) {
+                history.removeFirst();
+            }
+            history.addLast(action);
+        }
+
+        private boolean fail(String message) {
+            failures++;
+            if (failures <= MAX_REPORTED_FAILURES) {
+                report.append(String.format("%nscenario %d failed %s%n", scenarioSeed, message));
+                for (String action : history) {
+                    report.append("    ").append(action).append(String.format("%n"));
+                }
+            }
+            return false;
+        }
+    }
+}
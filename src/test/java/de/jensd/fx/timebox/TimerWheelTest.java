@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2012-2017 Jens Deters http://www.jensd.de
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the
+ * License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ *
+ */
+package de.jensd.fx.timebox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Drives a {@link TimerWheel} through {@link TimerWheel#advance(long)} with
+ * exact times, from an origin close to the overflow of a long. The wheel is
+ * advanced on every tick boundary and the dispatcher runs the expired tasks
+ * right away, so a task has to run at the first tick at or after its deadline,
+ * less than one tick late.
+ *
+ * @author Jens Deters
+ */
+public class TimerWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private static final long LEVEL_1 = 64;
+    private static final long LEVEL_2 = 64 * 64;
+    private static final long LEVEL_3 = 64 * 64 * 64;
+    private static final long ORIGIN = Long.MAX_VALUE - TimeUnit.SECONDS.toNanos(10);
+
+    private final TimerWheel wheel = new TimerWheel(TICK_MILLIS, Runnable::run, ORIGIN);
+    private long now = ORIGIN;
+
+    @Test
+    public void randomTimeoutsRunOnceWithinOneTick() {
+        Random random = new Random(20121016L);
+        List<Task> tasks = new ArrayList<>();
+        for (long tick = 0; tick < 3 * LEVEL_2; tick++) {
+            for (int i = random.nextInt(4); i > 0; i--) {
+                // mostly within levels 0 and 1, some reaching into level 2
+                long delay = 1 + (random.nextInt(8) == 0
+                        ? (long) (random.nextDouble() * 2 * LEVEL_2 * TICK)
+                        : (long) (random.nextDouble() * 2 * LEVEL_1 * TICK));
+                Task task = new Task(now + delay);
+                tasks.add(task);
+                if (random.nextInt(10) == 0) {
+                    // before the wheel took it over
+                    task.cancel();
+                }
+            }
+            if (!tasks.isEmpty() && random.nextInt(10) == 0) {
+                // most likely already in a slot, maybe cascaded
+                tasks.get(random.nextInt(tasks.size())).cancel();
+            }
+            advanceTo(tick);
+        }
+        advanceTo(5 * LEVEL_2);
+        for (Task task : tasks) {
+            task.assertRanInTime();
+        }
+        assertEquals("active timeouts", 0, wheel.getActiveCount());
+    }
+
+    @Test
+    public void timeoutsCascadeAcrossLevelBoundaries() {
+        // start off tick 0, so the boundaries are not aligned to the start
+        advanceTo(10);
+        long[] ticks = {
+            LEVEL_1 - 1, LEVEL_1, LEVEL_1 + 1,
+            2 * LEVEL_1 + 10, 2 * LEVEL_1 + 11,
+            LEVEL_2 - 1, LEVEL_2, LEVEL_2 + 1, LEVEL_2 + LEVEL_1, LEVEL_2 + 10 + LEVEL_1,
+            LEVEL_3 - 1, LEVEL_3, LEVEL_3 + 1, LEVEL_3 + LEVEL_2 + LEVEL_1 + 1};
+        List<Task> tasks = new ArrayList<>();
+        for (long tick : ticks) {
+            tasks.add(new Task(ORIGIN + tick * TICK));
+        }
+        advanceTo(LEVEL_3 + LEVEL_2 + LEVEL_1 + 2);
+        for (Task task : tasks) {
+            task.assertRanInTime();
+            // advanced on tick boundaries, deadlines on tick boundaries run right on time
+            assertEquals("delay of the task due at tick " + (task.deadline - ORIGIN) / TICK, task.deadline, task.ranAt);
+        }
+    }
+
+    @Test
+    public void timeoutsBeyondTheTopLevelAreParked() {
+        long far = (1L << 24) + 100;
+        Task task = new Task(ORIGIN + far * TICK);
+        advanceTo(far - 1);
+        assertEquals("runs before the deadline", 0, task.runs);
+        advanceTo(far);
+        task.assertRanInTime();
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverRun() {
+        Task beforeTransfer = new Task(now + 5 * TICK);
+        assertTrue(beforeTransfer.cancel());
+        Task inLevel0 = new Task(now + 5 * TICK);
+        Task sameSlot = new Task(now + 5 * TICK);
+        Task inLevel1 = new Task(now + 100 * TICK);
+        Task cascaded = new Task(now + 100 * TICK);
+        Task inLevel2 = new Task(now + 5000 * TICK);
+        advanceTo(1);
+        assertTrue(inLevel0.cancel());
+        assertTrue(inLevel2.cancel());
+        // taken down from level 1 to level 0 at tick 64
+        advanceTo(70);
+        assertTrue(cascaded.cancel());
+        assertFalse("cancelled twice", cascaded.cancel());
+        advanceTo(6000);
+        assertEquals(0, beforeTransfer.runs);
+        assertEquals(0, inLevel0.runs);
+        assertEquals(0, cascaded.runs);
+        assertEquals(0, inLevel2.runs);
+        sameSlot.assertRanInTime();
+        inLevel1.assertRanInTime();
+        assertFalse("cancelled after it ran", inLevel1.cancel());
+        assertEquals("active timeouts", 0, wheel.getActiveCount());
+    }
+
+    @Test
+    public void attachedCoreRunsOnItsOwnTimeSource() {
+        // the core's clock is far away from System.nanoTime()
+        VirtualClock clock = new VirtualClock(0);
+        TimerCore core = new TimerCore(clock);
+        core.setOverdueOn(true);
+        long origin = System.nanoTime();
+        TimerWheel realWheel = new TimerWheel(TICK_MILLIS, Runnable::run, origin);
+        realWheel.attach(core);
+        core.startUntil(clock.nanoTime() + TimeUnit.SECONDS.toNanos(5), 5000);
+        realWheel.advance(System.nanoTime() + TimeUnit.SECONDS.toNanos(4));
+        assertEquals(1, realWheel.getActiveCount());
+        clock.advance(5, TimeUnit.SECONDS);
+        realWheel.advance(System.nanoTime() + TimeUnit.SECONDS.toNanos(5) + TICK);
+        assertEquals(0, realWheel.getActiveCount());
+        assertEquals(TimerCore.State.OVERDUE, core.getState());
+    }
+
+    /**
+     * Advances the wheel on every tick boundary up to the given tick.
+     */
+    private void advanceTo(long tick) {
+        long current = (now - ORIGIN) / TICK;
+        for (long t = current + 1; t <= tick; t++) {
+            now = ORIGIN + t * TICK;
+            wheel.advance(now);
+        }
+    }
+
+    private class Task implements Runnable {
+
+        private final long deadline;
+        private final TimerWheel.Timeout timeout;
+        private boolean cancelled;
+        private int runs;
+        private long ranAt;
+
+        Task(long deadline) {
+            this.deadline = deadline;
+            this.timeout = wheel.schedule(this, deadline);
+        }
+
+        boolean cancel() {
+            boolean done = timeout.cancel();
+            cancelled |= done;
+            return done;
+        }
+
+        @Override
+        public void run() {
+            runs++;
+            ranAt = now;
+        }
+
+        void assertRanInTime() {
+            String task = "task due at tick " + (deadline - ORIGIN) / TICK;
+            if (cancelled) {
+                assertEquals("runs of cancelled " + task, 0, runs);
+                return;
+            }
+            assertEquals("runs of " + task, 1, runs);
+            assertTrue(task + " ran " + (deadline - ranAt) + " ns early", ranAt - deadline >= 0);
+            assertTrue(task + " ran " + (ranAt - deadline) + " ns late", ranAt - deadline < TICK);
+        }
+    }
+}